@@ -0,0 +1,20 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.BitSet;
+import org.jspecify.annotations.NullMarked;
+import dev.imprex.orebfuscator.interop.ChunkPacketAccessor;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+
+@NullMarked
+public record BenchmarkChunkPacket(int chunkX, int chunkZ, BitSet sectionMask, byte[] data)
+    implements ChunkPacketAccessor {
+
+  @Override
+  public boolean isSectionPresent(int index) {
+    return this.sectionMask.get(index);
+  }
+
+  @Override
+  public void update(ObfuscationResponse response) {
+  }
+}
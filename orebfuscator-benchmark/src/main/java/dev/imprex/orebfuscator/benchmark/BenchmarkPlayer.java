@@ -0,0 +1,68 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import org.jspecify.annotations.NullMarked;
+import dev.imprex.orebfuscator.PermissionRequirements;
+import dev.imprex.orebfuscator.interop.PlayerAccessor;
+import dev.imprex.orebfuscator.interop.WorldAccessor;
+import dev.imprex.orebfuscator.player.OrebfuscatorPlayer;
+import dev.imprex.orebfuscator.util.BlockPos;
+import dev.imprex.orebfuscator.util.EntityPose;
+
+@NullMarked
+public class BenchmarkPlayer implements PlayerAccessor {
+
+  private final BenchmarkWorld world;
+
+  public BenchmarkPlayer(BenchmarkWorld world) {
+    this.world = world;
+  }
+
+  @Override
+  public OrebfuscatorPlayer orebfuscatorPlayer() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public EntityPose pose() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public EntityPose eyePose() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public WorldAccessor world() {
+    return this.world;
+  }
+
+  @Override
+  public boolean isAlive() {
+    return true;
+  }
+
+  @Override
+  public boolean isSpectator() {
+    return false;
+  }
+
+  @Override
+  public double lavaFogDistance() {
+    return 0;
+  }
+
+  @Override
+  public boolean hasPermission(PermissionRequirements permission) {
+    return false;
+  }
+
+  @Override
+  public void runForPlayer(Runnable runnable) {
+    runnable.run();
+  }
+
+  @Override
+  public void sendBlockUpdates(Iterable<BlockPos> iterable) {
+  }
+}
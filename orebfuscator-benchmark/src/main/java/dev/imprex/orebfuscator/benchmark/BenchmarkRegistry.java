@@ -0,0 +1,107 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.BitSet;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.interop.RegistryAccessor;
+import dev.imprex.orebfuscator.util.BlockProperties;
+import dev.imprex.orebfuscator.util.BlockTag;
+
+/**
+ * Registry stub with a fixed set of well known block states and a large tail of generic (occluding) states so that
+ * palette sizes and registry lookups behave similar to a modern server.
+ */
+@NullMarked
+public class BenchmarkRegistry implements RegistryAccessor {
+
+  public static final int AIR = 0;
+  public static final int CAVE_AIR = 1;
+  public static final int STONE = 2;
+  public static final int DEEPSLATE = 3;
+  public static final int ANDESITE = 4;
+  public static final int GRANITE = 5;
+  public static final int DIORITE = 6;
+  public static final int TUFF = 7;
+  public static final int DIRT = 8;
+  public static final int GRAVEL = 9;
+  public static final int BEDROCK = 10;
+  public static final int WATER = 11;
+  public static final int LAVA = 12;
+  public static final int CHEST = 13;
+  public static final int SPAWNER = 14;
+
+  public static final int COAL_ORE = 15;
+  public static final int IRON_ORE = 16;
+  public static final int COPPER_ORE = 17;
+  public static final int GOLD_ORE = 18;
+  public static final int REDSTONE_ORE = 19;
+  public static final int LAPIS_ORE = 20;
+  public static final int DIAMOND_ORE = 21;
+  public static final int EMERALD_ORE = 22;
+  public static final int DEEPSLATE_IRON_ORE = 23;
+  public static final int DEEPSLATE_GOLD_ORE = 24;
+  public static final int DEEPSLATE_REDSTONE_ORE = 25;
+  public static final int DEEPSLATE_DIAMOND_ORE = 26;
+
+  /**
+   * First id of the generic block states used to decorate surface sections
+   */
+  public static final int GENERIC_STATES = 64;
+
+  // block state count of 1.21.4
+  private static final int UNIQUE_BLOCK_STATE_COUNT = 27_914;
+  private static final int MAX_BITS_PER_BLOCK_STATE = 32 - Integer.numberOfLeadingZeros(UNIQUE_BLOCK_STATE_COUNT - 1);
+
+  private final BitSet occluding = new BitSet(UNIQUE_BLOCK_STATE_COUNT);
+
+  public BenchmarkRegistry() {
+    this.occluding.set(STONE, WATER);
+    this.occluding.set(COAL_ORE, DEEPSLATE_DIAMOND_ORE + 1);
+    this.occluding.set(GENERIC_STATES, UNIQUE_BLOCK_STATE_COUNT);
+  }
+
+  @Override
+  public int getUniqueBlockStateCount() {
+    return UNIQUE_BLOCK_STATE_COUNT;
+  }
+
+  @Override
+  public int getMaxBitsPerBlockState() {
+    return MAX_BITS_PER_BLOCK_STATE;
+  }
+
+  @Override
+  public boolean isAir(int blockId) {
+    return blockId == AIR || blockId == CAVE_AIR;
+  }
+
+  @Override
+  public boolean isFluid(int blockId) {
+    return blockId == WATER || blockId == LAVA;
+  }
+
+  @Override
+  public boolean isLava(int blockId) {
+    return blockId == LAVA;
+  }
+
+  @Override
+  public boolean isOccluding(int blockId) {
+    return this.occluding.get(blockId);
+  }
+
+  @Override
+  public boolean isBlockEntity(int blockId) {
+    return blockId == CHEST || blockId == SPAWNER;
+  }
+
+  @Override
+  public @Nullable BlockProperties getBlockByName(String name) {
+    return null;
+  }
+
+  @Override
+  public @Nullable BlockTag getBlockTagByName(String name) {
+    return null;
+  }
+}
@@ -0,0 +1,210 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.SystemMonitor;
+import dev.imprex.orebfuscator.cache.AbstractRegionFileCache;
+import dev.imprex.orebfuscator.cache.ObfuscationCache;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
+import dev.imprex.orebfuscator.chunk.ChunkVersionFlags;
+import dev.imprex.orebfuscator.config.OrebfuscatorCacheConfig;
+import dev.imprex.orebfuscator.config.OrebfuscatorConfig;
+import dev.imprex.orebfuscator.config.api.AdvancedConfig;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.Config;
+import dev.imprex.orebfuscator.config.api.GeneralConfig;
+import dev.imprex.orebfuscator.config.api.WorldConfigBundle;
+import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
+import dev.imprex.orebfuscator.interop.PlayerAccessor;
+import dev.imprex.orebfuscator.interop.RegistryAccessor;
+import dev.imprex.orebfuscator.interop.WorldAccessor;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationPipeline;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationProcessor;
+import dev.imprex.orebfuscator.statistics.OrebfuscatorStatistics;
+import dev.imprex.orebfuscator.statistics.StatisticsRegistry;
+import dev.imprex.orebfuscator.util.Version;
+import dev.imprex.orebfuscator.util.concurrent.OrebfuscatorExecutor;
+
+/**
+ * Minimal {@link OrebfuscatorCore} that only provides the components needed to drive the chunk obfuscation hot path
+ * without a running server. Everything unrelated to chunk processing throws {@link UnsupportedOperationException}.
+ */
+@NullMarked
+public class BenchmarkServer implements OrebfuscatorCore {
+
+  private final Version minecraftVersion;
+  private final BenchmarkRegistry registry = new BenchmarkRegistry();
+  private final BenchmarkWorld world;
+  private final BenchmarkPlayer player;
+
+  private final CacheConfig cacheConfig;
+  private final Config config;
+  private final OrebfuscatorStatistics statistics;
+
+  private final ChunkVersionFlags versionFlags;
+  private final ChunkFactory chunkFactory;
+  private final ObfuscationProcessor obfuscationProcessor;
+
+  public BenchmarkServer(String minecraftVersion) {
+    this.minecraftVersion = Version.parse(minecraftVersion);
+    this.world = new BenchmarkWorld(this);
+    this.player = new BenchmarkPlayer(this.world);
+
+    this.cacheConfig = new OrebfuscatorCacheConfig(this);
+    this.config = new BenchmarkConfig();
+    this.statistics = new OrebfuscatorStatistics(this.config, new StatisticsRegistry());
+
+    this.versionFlags = new ChunkVersionFlags(this);
+    this.chunkFactory = new ChunkFactory(this);
+    this.obfuscationProcessor = new ObfuscationProcessor(this);
+  }
+
+  public BenchmarkWorld world() {
+    return this.world;
+  }
+
+  public BenchmarkPlayer player() {
+    return this.player;
+  }
+
+  public ChunkVersionFlags versionFlags() {
+    return this.versionFlags;
+  }
+
+  @Override
+  public boolean isGameThread() {
+    return false;
+  }
+
+  @Override
+  public Path configDirectory() {
+    return Path.of("benchmark");
+  }
+
+  @Override
+  public Path worldDirectory() {
+    return Path.of("benchmark");
+  }
+
+  @Override
+  public Version orebfuscatorVersion() {
+    return Version.parse("5.0.0");
+  }
+
+  @Override
+  public Version minecraftVersion() {
+    return this.minecraftVersion;
+  }
+
+  @Override
+  public RegistryAccessor registry() {
+    return this.registry;
+  }
+
+  @Override
+  public AbstractRegionFileCache<?> createRegionFileCache() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public List<WorldAccessor> worlds() {
+    return List.of(this.world);
+  }
+
+  @Override
+  public List<PlayerAccessor> players() {
+    return List.of(this.player);
+  }
+
+  @Override
+  public String name() {
+    return "benchmark";
+  }
+
+  @Override
+  public OrebfuscatorExecutor executor() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public SystemMonitor systemMonitor() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public StatisticsRegistry statisticsRegistry() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public OrebfuscatorStatistics statistics() {
+    return this.statistics;
+  }
+
+  @Override
+  public OrebfuscatorConfig config() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ChunkFactory chunkFactory() {
+    return this.chunkFactory;
+  }
+
+  @Override
+  public ObfuscationCache cache() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ObfuscationPipeline obfuscationPipeline() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public ObfuscationProcessor obfuscationProcessor() {
+    return this.obfuscationProcessor;
+  }
+
+  private class BenchmarkConfig implements Config {
+
+    private final byte[] systemHash = new byte[16];
+
+    @Override
+    public byte[] systemHash() {
+      return this.systemHash;
+    }
+
+    @Override
+    public @Nullable String report() {
+      return null;
+    }
+
+    @Override
+    public GeneralConfig general() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public AdvancedConfig advanced() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CacheConfig cache() {
+      return cacheConfig;
+    }
+
+    @Override
+    public WorldConfigBundle world(WorldAccessor world) {
+      return world.config();
+    }
+
+    @Override
+    public boolean proximityEnabled() {
+      return true;
+    }
+  }
+}
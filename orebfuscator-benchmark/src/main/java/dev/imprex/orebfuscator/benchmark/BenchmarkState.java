@@ -0,0 +1,35 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark state, one instance per {@link dev.imprex.orebfuscator.chunk.ChunkVersionFlags} set:
+ * <ul>
+ *   <li>1.16.5 - long array length field, no biomes, no single value palette</li>
+ *   <li>1.18.2 - biome paletted container and single value palette</li>
+ *   <li>1.21.5 - no long array length field</li>
+ *   <li>26.1 - fluid count</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+public class BenchmarkState {
+
+  @Param({ "1.16.5", "1.18.2", "1.21.5", "26.1" })
+  public String minecraftVersion;
+
+  @Param({ "8" })
+  public int corpusRadius;
+
+  public BenchmarkServer server;
+  public ChunkCorpus corpus;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.server = new BenchmarkServer(this.minecraftVersion);
+    this.corpus = new ChunkCorpus(this.server, this.corpusRadius);
+  }
+}
@@ -0,0 +1,390 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import static dev.imprex.orebfuscator.benchmark.BenchmarkRegistry.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.config.api.BlockFlags;
+import dev.imprex.orebfuscator.config.api.ObfuscationConfig;
+import dev.imprex.orebfuscator.config.api.ProximityConfig;
+import dev.imprex.orebfuscator.config.api.WorldConfig;
+import dev.imprex.orebfuscator.config.api.WorldConfigBundle;
+import dev.imprex.orebfuscator.config.components.ConfigBlockValue;
+import dev.imprex.orebfuscator.interop.ChunkAccessor;
+import dev.imprex.orebfuscator.interop.WorldAccessor;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import dev.imprex.orebfuscator.util.BlockPos;
+import dev.imprex.orebfuscator.util.ChunkDirection;
+import dev.imprex.orebfuscator.util.WeightedRandom;
+
+/**
+ * World stub backed by a deterministic terrain function. Neighboring chunks are served from the same terrain so that
+ * border lookups behave like they would on a real server.
+ */
+@NullMarked
+public class BenchmarkWorld implements WorldAccessor {
+
+  private static final long SEED = 0x6f7265626675L;
+
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+    value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return value ^ (value >>> 33);
+  }
+
+  private static int hash(int x, int y, int z, int salt) {
+    long value = SEED + salt;
+    value = mix(value ^ x);
+    value = mix(value ^ y);
+    value = mix(value ^ z);
+    return (int) value & Integer.MAX_VALUE;
+  }
+
+  private final int minBuildHeight;
+  private final int maxBuildHeight;
+
+  private final BenchmarkWorldConfigBundle config;
+
+  public BenchmarkWorld(BenchmarkServer server) {
+    if (server.minecraftVersion().isAtOrAbove("1.18")) {
+      this.minBuildHeight = -64;
+      this.maxBuildHeight = 320;
+    } else {
+      this.minBuildHeight = 0;
+      this.maxBuildHeight = 256;
+    }
+
+    this.config = new BenchmarkWorldConfigBundle();
+  }
+
+  /**
+   * Returns the block state at the given position, the same position always results in the same block state.
+   */
+  public int blockAt(int x, int y, int z) {
+    if (y == this.minBuildHeight) {
+      return BEDROCK;
+    }
+
+    int surface = 60 + (hash(x >> 3, 0, z >> 3, 1) & 15);
+    if (y > surface) {
+      if (y <= 62) {
+        return WATER;
+      } else if (y == surface + 1 && (hash(x, y, z, 2) & 7) < 3) {
+        // foliage and other decoration on top of the surface
+        return GENERIC_STATES + hash(x, y, z, 3) % 256;
+      }
+      return AIR;
+    } else if (y == surface) {
+      return DIRT;
+    }
+
+    // carve coarse caves, fill the bottom with lava
+    if (hash(x >> 2, y >> 2, z >> 2, 4) % 100 < 9) {
+      if (y < this.minBuildHeight + 10) {
+        return LAVA;
+      } else if (hash(x, y, z, 5) % 2048 == 0) {
+        return (hash(x, y, z, 6) & 1) == 0 ? CHEST : SPAWNER;
+      }
+      return CAVE_AIR;
+    }
+
+    boolean deepslate = y < 0;
+
+    // ores are placed in small veins
+    int vein = hash(x >> 1, y >> 1, z >> 1, 7);
+    if (vein % 1000 < 12) {
+      return ore(vein >> 10, y, deepslate);
+    }
+
+    // stone variants are placed in blobs
+    int blob = hash(x >> 3, y >> 3, z >> 3, 8) % 100;
+    if (deepslate) {
+      return blob < 10 ? TUFF : DEEPSLATE;
+    } else if (blob < 8) {
+      return ANDESITE;
+    } else if (blob < 14) {
+      return GRANITE;
+    } else if (blob < 20) {
+      return DIORITE;
+    } else if (blob < 23) {
+      return GRAVEL;
+    }
+    return STONE;
+  }
+
+  private int ore(int value, int y, boolean deepslate) {
+    int type = value % 100;
+    if (deepslate) {
+      if (type < 40) {
+        return DEEPSLATE_REDSTONE_ORE;
+      } else if (type < 70) {
+        return DEEPSLATE_IRON_ORE;
+      } else if (type < 85) {
+        return DEEPSLATE_GOLD_ORE;
+      }
+      return DEEPSLATE_DIAMOND_ORE;
+    } else if (type < 35) {
+      return COAL_ORE;
+    } else if (type < 60) {
+      return IRON_ORE;
+    } else if (type < 75) {
+      return COPPER_ORE;
+    } else if (type < 82) {
+      return LAPIS_ORE;
+    } else if (type < 90) {
+      return y < 32 ? GOLD_ORE : COAL_ORE;
+    } else if (type < 97) {
+      return REDSTONE_ORE;
+    }
+    return y < 16 ? DIAMOND_ORE : EMERALD_ORE;
+  }
+
+  @Override
+  public String name() {
+    return "world";
+  }
+
+  @Override
+  public int height() {
+    return this.maxBuildHeight - this.minBuildHeight;
+  }
+
+  @Override
+  public int minBuildHeight() {
+    return this.minBuildHeight;
+  }
+
+  @Override
+  public int maxBuildHeight() {
+    return this.maxBuildHeight;
+  }
+
+  @Override
+  public int sectionCount() {
+    return this.maxSection() - this.minSection();
+  }
+
+  @Override
+  public int minSection() {
+    return this.minBuildHeight >> 4;
+  }
+
+  @Override
+  public int maxSection() {
+    return ((this.maxBuildHeight - 1) >> 4) + 1;
+  }
+
+  @Override
+  public int sectionIndex(int y) {
+    return (y >> 4) - this.minSection();
+  }
+
+  @Override
+  public WorldConfigBundle config() {
+    return this.config;
+  }
+
+  @Override
+  public CompletableFuture<ChunkAccessor[]> getNeighboringChunks(ObfuscationRequest request) {
+    var packet = request.packet();
+
+    ChunkAccessor[] neighbors = new ChunkAccessor[4];
+    for (ChunkDirection direction : ChunkDirection.values()) {
+      neighbors[direction.ordinal()] = getChunkNow(packet.chunkX() + direction.getOffsetX(),
+          packet.chunkZ() + direction.getOffsetZ());
+    }
+
+    return CompletableFuture.completedFuture(neighbors);
+  }
+
+  @Override
+  public ChunkAccessor getChunkNow(int chunkX, int chunkZ) {
+    return (x, y, z) -> y >= this.minBuildHeight && y < this.maxBuildHeight ? blockAt(x, y, z) : AIR;
+  }
+
+  @Override
+  public void sendBlockUpdates(Iterable<BlockPos> iterable) {
+  }
+
+  private class BenchmarkWorldConfigBundle implements WorldConfigBundle {
+
+    private final int[] blockFlags = new int[GENERIC_STATES];
+
+    private final BlockFlags flags = new BlockFlags() {
+
+      @Override
+      public int flags(int blockState) {
+        return blockState < GENERIC_STATES ? blockFlags[blockState] : 0;
+      }
+
+      @Override
+      public int flags(int blockState, int y) {
+        return flags(blockState);
+      }
+    };
+
+    private final BenchmarkObfuscationConfig obfuscationConfig = new BenchmarkObfuscationConfig();
+    private final ProximityConfig proximityConfig = createProximityConfig();
+
+    private final WeightedRandom stoneObfuscationRandom;
+    private final WeightedRandom deepslateObfuscationRandom;
+    private final WeightedRandom stoneProximityRandom;
+    private final WeightedRandom deepslateProximityRandom;
+
+    private final int[] stoneRandomBlockStates;
+    private final int[] deepslateRandomBlockStates;
+
+    public BenchmarkWorldConfigBundle() {
+      for (int ore = COAL_ORE; ore <= DEEPSLATE_DIAMOND_ORE; ore++) {
+        this.blockFlags[ore] = BlockFlags.FLAG_OBFUSCATE;
+      }
+      this.blockFlags[CHEST] = BlockFlags.FLAG_OBFUSCATE | BlockFlags.FLAG_BLOCK_ENTITY | BlockFlags.FLAG_PROXIMITY;
+      this.blockFlags[SPAWNER] = BlockFlags.FLAG_OBFUSCATE | BlockFlags.FLAG_BLOCK_ENTITY | BlockFlags.FLAG_PROXIMITY;
+      this.blockFlags[DIAMOND_ORE] |= BlockFlags.FLAG_PROXIMITY | BlockFlags.FLAG_USE_BLOCK_BELOW;
+      this.blockFlags[DEEPSLATE_DIAMOND_ORE] |= BlockFlags.FLAG_PROXIMITY | BlockFlags.FLAG_USE_BLOCK_BELOW;
+      this.blockFlags[EMERALD_ORE] |= BlockFlags.FLAG_PROXIMITY;
+
+      this.stoneObfuscationRandom = WeightedRandom.builder()
+          .add(STONE, 10).add(ANDESITE, 2).add(GRANITE, 2).add(DIORITE, 2)
+          .add(COAL_ORE, 1).add(IRON_ORE, 1).add(GOLD_ORE, 1).add(REDSTONE_ORE, 1).add(DIAMOND_ORE, 1)
+          .build();
+      this.deepslateObfuscationRandom = WeightedRandom.builder()
+          .add(DEEPSLATE, 10).add(TUFF, 2)
+          .add(DEEPSLATE_IRON_ORE, 1).add(DEEPSLATE_GOLD_ORE, 1).add(DEEPSLATE_REDSTONE_ORE, 1)
+          .add(DEEPSLATE_DIAMOND_ORE, 1)
+          .build();
+      this.stoneProximityRandom = WeightedRandom.builder().add(STONE, 1).build();
+      this.deepslateProximityRandom = WeightedRandom.builder().add(DEEPSLATE, 1).build();
+
+      this.stoneRandomBlockStates = IntStream.concat(
+          Arrays.stream(this.stoneObfuscationRandom.values()),
+          Arrays.stream(this.stoneProximityRandom.values())).distinct().toArray();
+      this.deepslateRandomBlockStates = IntStream.concat(
+          Arrays.stream(this.deepslateObfuscationRandom.values()),
+          Arrays.stream(this.deepslateProximityRandom.values())).distinct().toArray();
+    }
+
+    @Override
+    public BlockFlags blockFlags() {
+      return this.flags;
+    }
+
+    @Override
+    public @Nullable ObfuscationConfig obfuscation() {
+      return this.obfuscationConfig;
+    }
+
+    @Override
+    public @Nullable ProximityConfig proximity() {
+      return this.proximityConfig;
+    }
+
+    @Override
+    public boolean needsObfuscation() {
+      return true;
+    }
+
+    @Override
+    public int minSectionIndex() {
+      return 0;
+    }
+
+    @Override
+    public int maxSectionIndex() {
+      return sectionCount();
+    }
+
+    @Override
+    public boolean shouldObfuscate(int y) {
+      return true;
+    }
+
+    @Override
+    public int nextRandomObfuscationBlock(RandomGenerator random, int y) {
+      return (y < 0 ? this.deepslateObfuscationRandom : this.stoneObfuscationRandom).next(random);
+    }
+
+    @Override
+    public int nextRandomProximityBlock(RandomGenerator random, int y) {
+      return (y < 0 ? this.deepslateProximityRandom : this.stoneProximityRandom).next(random);
+    }
+
+    @Override
+    public int[] randomBlockStates(int sectionIndex) {
+      int y = minBuildHeight + (sectionIndex << 4);
+      return y < 0 ? this.deepslateRandomBlockStates : this.stoneRandomBlockStates;
+    }
+  }
+
+  private abstract class BenchmarkWorldConfig implements WorldConfig {
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+
+    @Override
+    public int getMinY() {
+      return minBuildHeight;
+    }
+
+    @Override
+    public int getMaxY() {
+      return maxBuildHeight;
+    }
+
+    @Override
+    public boolean matchesWorldName(String worldName) {
+      return true;
+    }
+
+    @Override
+    public boolean shouldObfuscate(int y) {
+      return true;
+    }
+  }
+
+  private class BenchmarkObfuscationConfig extends BenchmarkWorldConfig implements ObfuscationConfig {
+
+    @Override
+    public boolean layerObfuscation() {
+      return false;
+    }
+
+    @Override
+    public boolean preferPaletteBlocks() {
+      return false;
+    }
+
+    @Override
+    public List<ConfigBlockValue> hiddenBlocks() {
+      return List.of();
+    }
+  }
+
+  /**
+   * Creates the proximity config as a proxy since {@link ProximityConfig#frustumCullingProjectionMatrix()} references a
+   * relocated joml type in the shaded core artifact. The hot path only ever queries the height range.
+   */
+  private ProximityConfig createProximityConfig() {
+    return (ProximityConfig) Proxy.newProxyInstance(ProximityConfig.class.getClassLoader(),
+        new Class<?>[] { ProximityConfig.class }, (proxy, method, args) -> switch (method.getName()) {
+          case "isEnabled", "shouldObfuscate", "matchesWorldName" -> true;
+          case "getMinY" -> minBuildHeight;
+          case "getMaxY" -> maxBuildHeight;
+          case "distance" -> 24;
+          case "frustumCullingEnabled", "rayCastCheckEnabled", "rayCastCheckOnlyCheckCenter" -> false;
+          case "hiddenBlocks" -> List.of();
+          case "hashCode" -> System.identityHashCode(proxy);
+          case "equals" -> proxy == args[0];
+          case "toString" -> "BenchmarkProximityConfig";
+          default -> throw new UnsupportedOperationException(method.getName());
+        });
+  }
+}
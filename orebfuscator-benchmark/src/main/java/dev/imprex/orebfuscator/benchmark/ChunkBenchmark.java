@@ -0,0 +1,43 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import dev.imprex.orebfuscator.chunk.Chunk;
+import dev.imprex.orebfuscator.chunk.ChunkSection;
+
+/**
+ * Decoding and encoding of chunk packets without any obfuscation, reported as chunks per second.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkBenchmark {
+
+  @Benchmark
+  public void read(BenchmarkState state, Blackhole blackhole) {
+    try (Chunk chunk = state.server.chunkFactory().fromPacket(state.corpus.nextRequest())) {
+      for (int sectionIndex = 0; sectionIndex < chunk.getSectionCount(); sectionIndex++) {
+        ChunkSection section = chunk.getSection(sectionIndex);
+        if (section != null) {
+          blackhole.consume(section.getBlockState(0));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public byte[] readWrite(BenchmarkState state) {
+    try (Chunk chunk = state.server.chunkFactory().fromPacket(state.corpus.nextRequest())) {
+      return chunk.finalizeOutput();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import dev.imprex.orebfuscator.cache.CacheCodec;
+import dev.imprex.orebfuscator.cache.CacheRequest;
+import dev.imprex.orebfuscator.cache.ChunkCacheEntry;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * Compression and decompression of obfuscated chunks as done by the memory and disk cache, reported as entries per
+ * second. Memory entries hold the whole chunk, restoring a disk entry includes replaying its edits onto the original
+ * packet.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChunkCacheEntryBenchmark {
+
+  @State(Scope.Thread)
+  public static class CacheState {
+
+    public final List<ObfuscationRequest> requests = new ArrayList<>();
+    public final List<CacheRequest> cacheRequests = new ArrayList<>();
+    public final List<ObfuscationResponse> responses = new ArrayList<>();
+    public final List<ChunkCacheEntry> entries = new ArrayList<>();
+    public final List<ChunkCacheEntry> diskEntries = new ArrayList<>();
+
+    private ChunkFactory chunkFactory;
+    private int cursor = 0;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkState state) {
+      this.chunkFactory = state.server.chunkFactory();
+
+      for (int i = 0; i < state.corpus.packets().size(); i++) {
+        ObfuscationRequest request = state.corpus.nextRequest();
+
+        byte[] hash = CacheRequest.HASH_FUNCTION.hashBytes(request.packet().data()).asBytes();
+        CacheRequest cacheRequest = new CacheRequest(new ChunkCacheKey(request), hash);
+        ObfuscationResponse response = state.server.obfuscationProcessor().process(request);
+
+        this.requests.add(request);
+        this.cacheRequests.add(cacheRequest);
+        this.responses.add(response);
+        this.entries.add(ChunkCacheEntry.create(cacheRequest, response));
+        this.diskEntries.add(this.entries.get(i).toDelta(CacheCodec.LZ4));
+      }
+    }
+
+    public ChunkFactory chunkFactory() {
+      return this.chunkFactory;
+    }
+
+    public int next() {
+      int index = this.cursor;
+      this.cursor = (this.cursor + 1) % this.entries.size();
+      return index;
+    }
+  }
+
+  @Benchmark
+  public ChunkCacheEntry create(CacheState state) {
+    int index = state.next();
+    return ChunkCacheEntry.create(state.cacheRequests.get(index), state.responses.get(index));
+  }
+
+  @Benchmark
+  public ObfuscationResponse toResult(CacheState state) {
+    int index = state.next();
+    return state.entries.get(index).toResult(state.chunkFactory(), state.requests.get(index));
+  }
+
+  @Benchmark
+  public ObfuscationResponse toResultFromDisk(CacheState state) {
+    int index = state.next();
+    return state.diskEntries.get(index).toResult(state.chunkFactory(), state.requests.get(index));
+  }
+}
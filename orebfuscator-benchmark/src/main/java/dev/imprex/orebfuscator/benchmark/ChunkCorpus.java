@@ -0,0 +1,130 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.jspecify.annotations.NullMarked;
+import dev.imprex.orebfuscator.chunk.ByteBufUtil;
+import dev.imprex.orebfuscator.chunk.ChunkSection;
+import dev.imprex.orebfuscator.chunk.ChunkVersionFlags;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Set of chunk packets encoded in the wire format of the {@link BenchmarkServer}'s minecraft version. The chunks are
+ * generated from the deterministic {@link BenchmarkWorld} terrain, so every run operates on exactly the same data.
+ */
+@NullMarked
+public class ChunkCorpus {
+
+  private final BenchmarkServer server;
+  private final List<BenchmarkChunkPacket> packets;
+
+  private int cursor = 0;
+
+  public ChunkCorpus(BenchmarkServer server, int radius) {
+    this.server = server;
+    this.packets = new ArrayList<>();
+
+    for (int chunkX = -radius; chunkX < radius; chunkX++) {
+      for (int chunkZ = -radius; chunkZ < radius; chunkZ++) {
+        this.packets.add(createPacket(chunkX, chunkZ));
+      }
+    }
+  }
+
+  public List<BenchmarkChunkPacket> packets() {
+    return this.packets;
+  }
+
+  public BenchmarkChunkPacket nextPacket() {
+    BenchmarkChunkPacket packet = this.packets.get(this.cursor);
+    this.cursor = (this.cursor + 1) % this.packets.size();
+    return packet;
+  }
+
+  public ObfuscationRequest nextRequest() {
+    var world = this.server.world();
+    var request = new ObfuscationRequest(world, this.server.player(), nextPacket(), null);
+    return request.withNeighbors(world.getNeighboringChunks(request).join());
+  }
+
+  private BenchmarkChunkPacket createPacket(int chunkX, int chunkZ) {
+    BenchmarkWorld world = this.server.world();
+    ChunkVersionFlags versionFlags = this.server.versionFlags();
+
+    BitSet sectionMask = new BitSet();
+    ByteBuf buffer = Unpooled.buffer();
+
+    for (int sectionIndex = 0; sectionIndex < world.sectionCount(); sectionIndex++) {
+      ChunkSection section = createEmptySection();
+
+      int baseY = world.minBuildHeight() + (sectionIndex << 4);
+      for (int index = 0; index < 4096; index++) {
+        int x = (chunkX << 4) + (index & 15);
+        int y = baseY + (index >> 8 & 15);
+        int z = (chunkZ << 4) + (index >> 4 & 15);
+        section.setBlockState(index, world.blockAt(x, y, z));
+      }
+
+      // chunks before 1.18 only contain non-empty sections
+      if (!versionFlags.hasBiomePalettedContainer() && section.isEmpty()) {
+        continue;
+      }
+
+      sectionMask.set(sectionIndex);
+      section.write(buffer);
+
+      if (versionFlags.hasBiomePalettedContainer()) {
+        // single value biome container
+        buffer.writeByte(0);
+        ByteBufUtil.writeVarInt(buffer, 0);
+        if (versionFlags.hasLongArrayLengthField()) {
+          ByteBufUtil.writeVarInt(buffer, 0);
+        }
+      }
+    }
+
+    byte[] data = new byte[buffer.readableBytes()];
+    buffer.readBytes(data);
+    buffer.release();
+
+    return new BenchmarkChunkPacket(chunkX, chunkZ, sectionMask, data);
+  }
+
+  /**
+   * Sections created from scratch have an empty palette before 1.18, so we instead read an air-only section.
+   */
+  private ChunkSection createEmptySection() {
+    ChunkVersionFlags versionFlags = this.server.versionFlags();
+    ByteBuf buffer = Unpooled.buffer();
+
+    buffer.writeShort(0);
+    if (versionFlags.hasFluidCount()) {
+      buffer.writeShort(0);
+    }
+
+    int dataLength = 0;
+    if (versionFlags.hasSingleValuePalette()) {
+      buffer.writeByte(0);
+      ByteBufUtil.writeVarInt(buffer, BenchmarkRegistry.AIR);
+    } else {
+      buffer.writeByte(4);
+      ByteBufUtil.writeVarInt(buffer, 1);
+      ByteBufUtil.writeVarInt(buffer, BenchmarkRegistry.AIR);
+      dataLength = 4096 * 4 / Long.SIZE;
+    }
+
+    if (versionFlags.hasLongArrayLengthField()) {
+      ByteBufUtil.writeVarInt(buffer, dataLength);
+    }
+    buffer.writeZero(dataLength * Long.BYTES);
+
+    ChunkSection section = new ChunkSection(this.server.chunkFactory());
+    section.read(buffer);
+    buffer.release();
+
+    return section;
+  }
+}
@@ -0,0 +1,28 @@
+package dev.imprex.orebfuscator.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+
+/**
+ * Full obfuscation of a single chunk packet, reported as chunks per second. Run with {@code -prof gc} to get the
+ * allocation rate per chunk.
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ObfuscationProcessorBenchmark {
+
+  @Benchmark
+  public ObfuscationResponse process(BenchmarkState state) {
+    return state.server.obfuscationProcessor().process(state.corpus.nextRequest());
+  }
+}
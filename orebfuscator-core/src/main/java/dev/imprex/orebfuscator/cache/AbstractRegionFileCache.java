@@ -3,7 +3,12 @@ package dev.imprex.orebfuscator.cache;
 import dev.imprex.orebfuscator.logging.OfcLogger;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
@@ -36,14 +41,14 @@ public abstract class AbstractRegionFileCache<T> {
   }
 
   protected final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-  protected final Map<Path, T> regionFiles;
+  private final Map<Path, Handle> regionFiles;
 
   protected final CacheConfig cacheConfig;
 
   public AbstractRegionFileCache(CacheConfig cacheConfig) {
     this.cacheConfig = cacheConfig;
 
-    this.regionFiles = new SimpleCache<>(cacheConfig.maximumOpenRegionFiles(), this::remove);
+    this.regionFiles = new SimpleCache<>(cacheConfig.maximumOpenRegionFiles(), entry -> entry.getValue().evict());
   }
 
   protected abstract T createRegionFile(Path path) throws IOException;
@@ -54,57 +59,130 @@ public abstract class AbstractRegionFileCache<T> {
 
   protected abstract DataOutputStream createOutputStream(T t, ChunkCacheKey key) throws IOException;
 
+  /**
+   * Called once after a batch of writes to the given region file. Implementations that defer header updates should
+   * persist them here, the default implementation does nothing.
+   */
+  protected void flushRegionFile(T t) throws IOException {
+  }
+
+  /**
+   * Passes the content of the given chunk to the reader or returns {@code null} if the chunk isn't present. The default
+   * implementation reads the whole input stream into a heap buffer, implementations that can expose their storage
+   * directly should override this.
+   */
+  protected <R> @Nullable R read(T t, ChunkCacheKey key, EntryReader<R> reader) throws IOException {
+    try (DataInputStream inputStream = this.createInputStream(t, key)) {
+      return inputStream != null ? reader.read(ByteBuffer.wrap(inputStream.readAllBytes())) : null;
+    }
+  }
+
+  public final <R> @Nullable R read(ChunkCacheKey key, EntryReader<R> reader) throws IOException {
+    Handle handle = this.acquire(this.cacheConfig.regionFile(key));
+    try {
+      return this.read(handle.regionFile, key, reader);
+    } finally {
+      this.release(handle);
+    }
+  }
+
   public final @Nullable DataInputStream createInputStream(ChunkCacheKey key) throws IOException {
-    T t = this.get(this.cacheConfig.regionFile(key));
-    return this.createInputStream(t, key);
+    Handle handle = this.acquire(this.cacheConfig.regionFile(key));
+    try {
+      DataInputStream inputStream = this.createInputStream(handle.regionFile, key);
+      if (inputStream == null) {
+        this.release(handle);
+        return null;
+      }
+      return new DataInputStream(new PinnedInputStream(inputStream, handle));
+    } catch (IOException | RuntimeException e) {
+      this.release(handle);
+      throw e;
+    }
   }
 
   public final DataOutputStream createOutputStream(ChunkCacheKey key) throws IOException {
-    T t = this.get(this.cacheConfig.regionFile(key));
-    return this.createOutputStream(t, key);
+    Handle handle = this.acquire(this.cacheConfig.regionFile(key));
+    try {
+      DataOutputStream outputStream = this.createOutputStream(handle.regionFile, key);
+      return new DataOutputStream(new PinnedOutputStream(outputStream, handle));
+    } catch (IOException | RuntimeException e) {
+      this.release(handle);
+      throw e;
+    }
   }
 
-  private void remove(Map.Entry<Path, T> entry) {
+  public final void flush(ChunkCacheKey key) throws IOException {
+    Path path = this.cacheConfig.regionFile(key);
+
+    Handle handle;
+    this.lock.writeLock().lock();
     try {
-      this.closeRegionFile(entry.getValue());
-    } catch (IOException e) {
-      OfcLogger.error(e);
+      handle = this.regionFiles.get(path);
+      if (handle != null) {
+        handle.references++;
+      }
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+
+    // region file got closed in the meantime which already flushed it
+    if (handle != null) {
+      try {
+        this.flushRegionFile(handle.regionFile);
+      } finally {
+        this.release(handle);
+      }
     }
   }
 
-  private T get(Path path) throws IOException {
-    this.lock.readLock().lock();
+  /**
+   * Returns the region file for the given path and pins it, so that it doesn't get closed before the matching
+   * {@link #release(Handle)} even if it gets evicted in the meantime.
+   */
+  private Handle acquire(Path path) throws IOException {
+    // lookups update the access order of the underlying map, so they need the exclusive lock
+    this.lock.writeLock().lock();
     try {
-      T t = this.regionFiles.get(path);
-      if (t != null) {
-        return t;
+      Handle handle = this.regionFiles.get(path);
+      if (handle != null) {
+        handle.references++;
+        return handle;
       }
     } finally {
-      this.lock.readLock().unlock();
+      this.lock.writeLock().unlock();
     }
 
     if (Files.notExists(path.getParent())) {
       Files.createDirectories(path.getParent());
     }
 
-    if (this.regionFiles.size() > this.cacheConfig.maximumOpenRegionFiles()) {
-      throw new IllegalStateException(String.format("RegionFileCache got bigger than expected (%d > %d)",
-          this.regionFiles.size(), this.cacheConfig.maximumOpenRegionFiles()));
-    }
-
     T t = Objects.requireNonNull(this.createRegionFile(path));
 
     this.lock.writeLock().lock();
     try {
-      T previous = this.regionFiles.putIfAbsent(path, t);
-
-      if (previous != null) {
+      Handle handle = this.regionFiles.get(path);
+      if (handle != null) {
         // some other thread was faster, close fd
         closeRegionFile(t);
-        return previous;
+      } else {
+        handle = new Handle(t);
+        this.regionFiles.put(path, handle);
       }
 
-      return t;
+      handle.references++;
+      return handle;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  private void release(Handle handle) {
+    this.lock.writeLock().lock();
+    try {
+      if (--handle.references == 0 && handle.evicted) {
+        handle.close();
+      }
     } finally {
       this.lock.writeLock().unlock();
     }
@@ -113,9 +191,9 @@ public abstract class AbstractRegionFileCache<T> {
   public final void close(Path path) throws IOException {
     this.lock.writeLock().lock();
     try {
-      T t = this.regionFiles.remove(path);
-      if (t != null) {
-        this.closeRegionFile(t);
+      Handle handle = this.regionFiles.remove(path);
+      if (handle != null) {
+        handle.evict();
       }
     } finally {
       this.lock.writeLock().unlock();
@@ -125,16 +203,102 @@ public abstract class AbstractRegionFileCache<T> {
   public final void clear() {
     this.lock.writeLock().lock();
     try {
-      for (T t : this.regionFiles.values()) {
-        try {
-          this.closeRegionFile(t);
-        } catch (IOException e) {
-          OfcLogger.error(e);
-        }
+      for (Handle handle : this.regionFiles.values()) {
+        handle.evict();
       }
       this.regionFiles.clear();
     } finally {
       this.lock.writeLock().unlock();
     }
   }
+
+  /**
+   * Open region file together with the number of operations currently using it. Evicted region files only get closed
+   * once the last of those operations is done. All fields are guarded by the write lock.
+   */
+  private class Handle {
+
+    private final T regionFile;
+
+    private int references = 0;
+    private boolean evicted = false;
+
+    public Handle(T regionFile) {
+      this.regionFile = regionFile;
+    }
+
+    public void evict() {
+      this.evicted = true;
+      if (this.references == 0) {
+        this.close();
+      }
+    }
+
+    private void close() {
+      try {
+        closeRegionFile(this.regionFile);
+      } catch (IOException e) {
+        OfcLogger.error(e);
+      }
+    }
+  }
+
+  private class PinnedInputStream extends FilterInputStream {
+
+    private @Nullable Handle handle;
+
+    public PinnedInputStream(InputStream inputStream, Handle handle) {
+      super(inputStream);
+      this.handle = handle;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (this.handle != null) {
+          release(this.handle);
+          this.handle = null;
+        }
+      }
+    }
+  }
+
+  private class PinnedOutputStream extends FilterOutputStream {
+
+    private @Nullable Handle handle;
+
+    public PinnedOutputStream(OutputStream outputStream, Handle handle) {
+      super(outputStream);
+      this.handle = handle;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      // FilterOutputStream would write one byte at a time
+      this.out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (this.handle != null) {
+          release(this.handle);
+          this.handle = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Consumes the content of a region file entry. The buffer is only valid until the reader returns.
+   */
+  @FunctionalInterface
+  public interface EntryReader<R> {
+
+    @Nullable R read(ByteBuffer buffer) throws IOException;
+  }
 }
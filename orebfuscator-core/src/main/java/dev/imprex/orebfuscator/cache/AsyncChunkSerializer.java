@@ -1,8 +1,12 @@
 package dev.imprex.orebfuscator.cache;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
@@ -11,6 +15,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
 import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
 import dev.imprex.orebfuscator.logging.OfcLogger;
 import dev.imprex.orebfuscator.statistics.CacheStatistics;
@@ -22,123 +27,265 @@ import dev.imprex.orebfuscator.util.RollingTimer;
  * consumer of said buffer. All requests can get reorder similar to modern memory access reordering in CPUs. If for
  * example a write request is already in the buffer and a new read request for the same position is created then the
  * read request doesn't get put in the buffer and gets completed with the content of the write request.
+ * <p>
+ * Requests are partitioned by region file across one or more workers, each with its own buffer and thread. This way all
+ * requests for the same region file are still handled in order while the actual I/O happens outside the buffer lock.
  *
  * @see <a href="https://en.wikipedia.org/wiki/Producer–consumer_problem">Bound buffer</a>
  * @see <a href="https://en.wikipedia.org/wiki/Memory_ordering">Memory ordering</a>
  */
 @NullMarked
-public class AsyncChunkSerializer implements Runnable {
+public class AsyncChunkSerializer {
 
   private final CacheStatistics statistics;
-
-  private final Lock lock = new ReentrantLock(true);
-  private final Condition notFull = lock.newCondition();
-  private final Condition notEmpty = lock.newCondition();
-
-  private final Map<ChunkCacheKey, Runnable> tasks = new HashMap<>();
-  private final Queue<ChunkCacheKey> positions = new LinkedList<>();
-
-  private final int maxTaskQueueSize;
   private final ChunkSerializer serializer;
 
-  private final Thread thread;
-  private volatile boolean running = true;
+  private final Worker[] workers;
 
   public AsyncChunkSerializer(OrebfuscatorCore orebfuscator, AbstractRegionFileCache<?> regionFileCache) {
+    CacheConfig cacheConfig = orebfuscator.config().cache();
+
     this.statistics = orebfuscator.statistics().cache;
-    this.maxTaskQueueSize = orebfuscator.config().cache().maximumTaskQueueSize();
-    this.serializer = new ChunkSerializer(regionFileCache, this.statistics);
+    this.serializer = new ChunkSerializer(regionFileCache, this.statistics,
+        CacheCodec.forCompression(cacheConfig.diskCacheCompression()));
+
+    int threads = cacheConfig.diskCacheThreads();
+    int maxTaskQueueSize = Math.max(1, (cacheConfig.maximumTaskQueueSize() + threads - 1) / threads);
 
-    this.thread = new Thread(OrebfuscatorCore.THREAD_GROUP, this, "ofc-chunk-serializer");
-    this.thread.setDaemon(true);
-    this.thread.start();
+    this.workers = new Worker[threads];
+    for (int i = 0; i < threads; i++) {
+      String name = threads == 1 ? "ofc-chunk-serializer" : "ofc-chunk-serializer-" + i;
+      this.workers[i] = new Worker(name, maxTaskQueueSize);
+    }
 
-    this.statistics.setDiskCacheQueueLength(this.tasks::size);
+    this.statistics.setDiskCacheQueueLength(() -> {
+      long queueLength = 0;
+      for (Worker worker : this.workers) {
+        queueLength += worker.tasks.size();
+      }
+      return queueLength;
+    });
   }
 
-  public CompletableFuture<@Nullable ChunkCacheEntry> read(ChunkCacheKey key) {
-    this.lock.lock();
-    try {
-      Runnable task = this.tasks.get(key);
-      if (task instanceof WriteTask) {
-        return CompletableFuture.completedFuture(((WriteTask) task).chunk);
-      } else if (task instanceof ReadTask) {
-        return ((ReadTask) task).future;
-      } else {
-        CompletableFuture<ChunkCacheEntry> future = new CompletableFuture<>();
-        this.queueTask(key, new ReadTask(key, future));
-        return future;
-      }
-    } finally {
-      this.lock.unlock();
+  private Worker worker(ChunkCacheKey key) {
+    if (this.workers.length == 1) {
+      return this.workers[0];
     }
+
+    // same partitioning as the region files themselves
+    int hash = key.world().hashCode();
+    hash = 31 * hash + (key.x() >> 5);
+    hash = 31 * hash + (key.z() >> 5);
+    hash ^= (hash >>> 16);
+
+    return this.workers[Math.floorMod(hash, this.workers.length)];
+  }
+
+  public CompletableFuture<@Nullable ChunkCacheEntry> read(ChunkCacheKey key) {
+    return this.worker(key).read(key);
   }
 
   public void write(ChunkCacheKey key, ChunkCacheEntry chunk) {
-    this.lock.lock();
-    try {
-      Runnable prevTask = this.queueTask(key, new WriteTask(key, chunk));
-      if (prevTask instanceof ReadTask) {
-        ((ReadTask) prevTask).future.complete(chunk);
-      }
-    } finally {
-      this.lock.unlock();
+    this.worker(key).write(key, chunk);
+  }
+
+  public void close() {
+    for (Worker worker : this.workers) {
+      worker.close();
     }
   }
 
-  @Nullable
-  private Runnable queueTask(ChunkCacheKey key, Runnable nextTask) {
-    while (this.positions.size() >= this.maxTaskQueueSize) {
-      this.notFull.awaitUninterruptibly();
+  private class Worker implements Runnable {
+
+    private final Lock lock = new ReentrantLock(true);
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Map<ChunkCacheKey, TimedTask> tasks = new HashMap<>();
+    private final Map<RegionPosition, Queue<ChunkCacheKey>> regions = new LinkedHashMap<>();
+
+    private final int maxTaskQueueSize;
+
+    // tasks of the batch that is currently running still hold their entries, so they count against the queue size
+    private int runningTaskCount = 0;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public Worker(String name, int maxTaskQueueSize) {
+      this.maxTaskQueueSize = maxTaskQueueSize;
+
+      this.thread = new Thread(OrebfuscatorCore.THREAD_GROUP, this, name);
+      this.thread.setDaemon(true);
+      this.thread.start();
     }
 
-    if (!this.running) {
-      throw new IllegalStateException("AsyncChunkSerializer already closed");
+    public CompletableFuture<@Nullable ChunkCacheEntry> read(ChunkCacheKey key) {
+      this.lock.lock();
+      try {
+        TimedTask task = this.tasks.get(key);
+        if (task instanceof WriteTask) {
+          return CompletableFuture.completedFuture(((WriteTask) task).chunk);
+        } else if (task instanceof ReadTask) {
+          return ((ReadTask) task).future;
+        } else {
+          CompletableFuture<ChunkCacheEntry> future = new CompletableFuture<>();
+          this.queueTask(key, new ReadTask(key, future));
+          return future;
+        }
+      } finally {
+        this.lock.unlock();
+      }
     }
 
-    Runnable prevTask = this.tasks.put(key, nextTask);
-    if (prevTask == null) {
-      this.positions.offer(key);
+    public void write(ChunkCacheKey key, ChunkCacheEntry chunk) {
+      this.lock.lock();
+      try {
+        TimedTask prevTask = this.queueTask(key, new WriteTask(key, chunk));
+        if (prevTask instanceof ReadTask) {
+          ((ReadTask) prevTask).future.complete(chunk);
+        }
+      } finally {
+        this.lock.unlock();
+      }
     }
 
-    this.notEmpty.signal();
-    return prevTask;
-  }
+    @Nullable
+    private TimedTask queueTask(ChunkCacheKey key, TimedTask nextTask) {
+      while (this.running && this.tasks.size() + this.runningTaskCount >= this.maxTaskQueueSize) {
+        this.notFull.awaitUninterruptibly();
+      }
+
+      if (!this.running) {
+        throw new IllegalStateException("AsyncChunkSerializer already closed");
+      }
+
+      TimedTask prevTask = this.tasks.put(key, nextTask);
+      if (prevTask == null) {
+        this.regions.computeIfAbsent(RegionPosition.of(key), k -> new ArrayDeque<>()).offer(key);
+      }
 
-  @Override
-  public void run() {
-    while (this.running) {
+      this.notEmpty.signal();
+      return prevTask;
+    }
+
+    /**
+     * Removes all queued tasks of the region file that was queued first. Writes to the same region file are thereby
+     * coalesced into a single batch that only needs to flush the region file once.
+     */
+    private List<TimedTask> pollBatch() {
+      Iterator<Queue<ChunkCacheKey>> iterator = this.regions.values().iterator();
+      Queue<ChunkCacheKey> positions = iterator.next();
+      iterator.remove();
+
+      List<TimedTask> batch = new ArrayList<>(positions.size());
+      for (ChunkCacheKey key : positions) {
+        batch.add(this.tasks.remove(key));
+      }
+      return batch;
+    }
+
+    private void runBatch(List<TimedTask> batch, boolean skipReads) {
+      @Nullable ChunkCacheKey flushKey = null;
+
+      for (TimedTask task : batch) {
+        if (task instanceof ReadTask readTask && skipReads) {
+          readTask.future.complete(null);
+          continue;
+        }
+
+        task.run();
+
+        if (task instanceof WriteTask) {
+          flushKey = task.key;
+        }
+      }
+
+      if (flushKey != null) {
+        try {
+          serializer.flush(flushKey);
+        } catch (IOException e) {
+          OfcLogger.error(e);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        List<TimedTask> batch;
+
+        this.lock.lock();
+        try {
+          while (this.running && this.regions.isEmpty()) {
+            this.notEmpty.awaitUninterruptibly();
+          }
+
+          if (!this.running) {
+            break;
+          }
+
+          batch = this.pollBatch();
+          this.runningTaskCount = batch.size();
+        } finally {
+          this.lock.unlock();
+        }
+
+        // a read for the same position queued in the meantime is handled by this
+        // thread as well, so it can't overtake the batch that is currently running
+        try {
+          this.runBatch(batch, false);
+        } finally {
+          this.lock.lock();
+          try {
+            this.runningTaskCount = 0;
+            this.notFull.signalAll();
+          } finally {
+            this.lock.unlock();
+          }
+        }
+      }
+    }
+
+    public void close() {
       this.lock.lock();
       try {
-        while (this.positions.isEmpty()) {
-          this.notEmpty.await();
-        }
+        this.running = false;
+        this.notEmpty.signalAll();
+        this.notFull.signalAll();
+      } finally {
+        this.lock.unlock();
+      }
 
-        this.tasks.remove(this.positions.poll()).run();
+      // don't interrupt the worker as that would close the region file channel it is currently using
+      boolean interrupted = false;
+      while (this.thread.isAlive()) {
+        try {
+          this.thread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
 
-        this.notFull.signal();
-      } catch (InterruptedException e) {
-        break;
+      this.lock.lock();
+      try {
+        while (!this.regions.isEmpty()) {
+          this.runBatch(this.pollBatch(), true);
+        }
       } finally {
         this.lock.unlock();
       }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
     }
   }
 
-  public void close() {
-    this.lock.lock();
-    try {
-      this.running = false;
-      this.thread.interrupt();
+  private record RegionPosition(String world, int x, int z) {
 
-      while (!this.positions.isEmpty()) {
-        Runnable task = this.tasks.remove(this.positions.poll());
-        if (task instanceof WriteTask) {
-          task.run();
-        }
-      }
-    } finally {
-      this.lock.unlock();
+    public static RegionPosition of(ChunkCacheKey key) {
+      return new RegionPosition(key.world(), key.x() >> 5, key.z() >> 5);
     }
   }
 
@@ -147,8 +294,11 @@ public class AsyncChunkSerializer implements Runnable {
     private final RollingTimer.Instance waitTimer = statistics.diskCacheWaitTime.start();
     private final RollingTimer runTimer;
 
-    public TimedTask(RollingTimer runTimer) {
+    protected final ChunkCacheKey key;
+
+    public TimedTask(RollingTimer runTimer, ChunkCacheKey key) {
       this.runTimer = runTimer;
+      this.key = key;
     }
 
     @Override
@@ -168,12 +318,10 @@ public class AsyncChunkSerializer implements Runnable {
 
   private class WriteTask extends TimedTask {
 
-    private final ChunkCacheKey key;
     private final ChunkCacheEntry chunk;
 
     public WriteTask(ChunkCacheKey key, ChunkCacheEntry chunk) {
-      super(statistics.diskCacheWriteTime);
-      this.key = key;
+      super(statistics.diskCacheWriteTime, key);
       this.chunk = chunk;
     }
 
@@ -181,7 +329,8 @@ public class AsyncChunkSerializer implements Runnable {
     public void execute() {
       try {
         serializer.write(key, chunk);
-      } catch (IOException e) {
+      } catch (IOException | RuntimeException e) {
+        // a single entry that can't be written must not take down the worker
         OfcLogger.error(e);
       }
     }
@@ -189,12 +338,10 @@ public class AsyncChunkSerializer implements Runnable {
 
   private class ReadTask extends TimedTask {
 
-    private final ChunkCacheKey key;
     private final CompletableFuture<@Nullable ChunkCacheEntry> future;
 
     public ReadTask(ChunkCacheKey key, CompletableFuture<@Nullable ChunkCacheEntry> future) {
-      super(statistics.diskCacheReadTime);
-      this.key = key;
+      super(statistics.diskCacheReadTime, key);
       this.future = future;
     }
 
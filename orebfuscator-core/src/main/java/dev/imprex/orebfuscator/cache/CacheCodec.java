@@ -0,0 +1,54 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+import dev.imprex.orebfuscator.config.api.CacheCompression;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * Compresses the body of cache entries. Every entry stores the id of the codec it got compressed with, so entries
+ * stay readable after the configured compression changed. Implementations have to be thread safe.
+ */
+@NullMarked
+public interface CacheCodec {
+
+  CacheCodec NONE = new RawCacheCodec(0);
+  CacheCodec LZ4 = new Lz4CacheCodec(1, LZ4Factory.fastestInstance().fastCompressor());
+  CacheCodec LZ4_HC = new Lz4CacheCodec(2, LZ4Factory.fastestInstance().highCompressor());
+  CacheCodec DEFLATE = new DeflateCacheCodec(3);
+
+  static CacheCodec forCompression(CacheCompression compression) {
+    return switch (compression) {
+      case NONE -> NONE;
+      case LZ4 -> LZ4;
+      case LZ4_HC -> LZ4_HC;
+      case DEFLATE -> DEFLATE;
+    };
+  }
+
+  static CacheCodec byId(int id) throws IOException {
+    return switch (id) {
+      case 0 -> NONE;
+      case 1 -> LZ4;
+      case 2 -> LZ4_HC;
+      case 3 -> DEFLATE;
+      default -> throw new IOException("Unknown cache codec: " + id);
+    };
+  }
+
+  int id();
+
+  int maxCompressedLength(int length);
+
+  /**
+   * Compresses the given source range into the destination array which has to hold at least
+   * {@link #maxCompressedLength(int)} bytes after the offset. Returns the number of bytes written.
+   */
+  int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset) throws IOException;
+
+  /**
+   * Decompresses the given source range into exactly {@code destLength} bytes of the destination array.
+   */
+  void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength)
+      throws IOException;
+}
@@ -0,0 +1,23 @@
+package dev.imprex.orebfuscator.cache;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+
+/**
+ * Outcome of a cache lookup. On a miss {@code previous} might still hold the outdated result for the same chunk, whose
+ * unchanged sections can be reused.
+ */
+@NullMarked
+public record CacheLookup(@Nullable ObfuscationResponse response, @Nullable ObfuscationResponse previous) {
+
+  public static final CacheLookup MISS = new CacheLookup(null, null);
+
+  public static CacheLookup hit(ObfuscationResponse response) {
+    return new CacheLookup(response, null);
+  }
+
+  public static CacheLookup previous(@Nullable ObfuscationResponse previous) {
+    return previous != null ? new CacheLookup(null, previous) : MISS;
+  }
+}
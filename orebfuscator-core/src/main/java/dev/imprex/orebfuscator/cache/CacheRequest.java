@@ -1,7 +1,9 @@
 package dev.imprex.orebfuscator.cache;
 
+import java.util.Arrays;
 import java.util.Objects;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import dev.imprex.orebfuscator.util.ChunkCacheKey;
@@ -17,6 +19,19 @@ public record CacheRequest(ChunkCacheKey cacheKey, byte[] hash) {
     Objects.requireNonNull(hash);
   }
 
+  @Override
+  public int hashCode() {
+    return 31 * cacheKey.hashCode() + Arrays.hashCode(hash);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj instanceof CacheRequest other && cacheKey.equals(other.cacheKey) && Arrays.equals(hash, other.hash);
+  }
+
   @Override
   public String toString() {
     return "CacheRequest [cacheKey=" + cacheKey + "]";
@@ -4,7 +4,8 @@ import java.util.Objects;
 import org.jspecify.annotations.NullMarked;
 
 @NullMarked
-public sealed interface CacheResponse permits CacheResponse.Success, CacheResponse.Failure {
+public sealed interface CacheResponse permits CacheResponse.Success, CacheResponse.Stale,
+    CacheResponse.Failure {
 
   public static CacheResponse success(ChunkCacheEntry entry) {
     return new Success(entry);
@@ -17,6 +18,16 @@ public sealed interface CacheResponse permits CacheResponse.Success, CacheRespon
     }
   }
 
+  /**
+   * Entry for the same chunk that doesn't match the request anymore but whose unchanged sections can still be reused.
+   */
+  record Stale(ChunkCacheEntry entry) implements CacheResponse {
+
+    public Stale {
+      Objects.requireNonNull(entry, "entry");
+    }
+  }
+
   enum Failure implements CacheResponse {
     NOT_FOUND, MEMORY_INVALID, DISK_INVALID;
   }
@@ -2,35 +2,74 @@ package dev.imprex.orebfuscator.cache;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Objects;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.chunk.Chunk;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
+import dev.imprex.orebfuscator.chunk.ChunkSection;
+import dev.imprex.orebfuscator.config.api.WorldConfigBundle;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
 import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+import dev.imprex.orebfuscator.obfuscation.SectionHashes;
 import dev.imprex.orebfuscator.player.ProximityBlock;
 import dev.imprex.orebfuscator.util.BlockPos;
 import dev.imprex.orebfuscator.util.ChunkCacheKey;
-import net.jpountz.lz4.LZ4BlockInputStream;
-import net.jpountz.lz4.LZ4BlockOutputStream;
 
+/**
+ * Cache entry layout: the request hash, one format byte, the codec id, the body length and the compressed body. Full
+ * entries store the whole obfuscated chunk and get kept in memory, so that memory hits don't have to touch the chunk.
+ * If the response has edits they get stored as well, which allows turning the entry into a delta entry for the disk
+ * cache. Delta entries only store the edits which get replayed onto the original packet, the hash guarantees that the
+ * packet is the same one the edits were recorded for. Entries with edits additionally store the section hashes if
+ * present, which allow reusing the edits of unchanged sections once the hash doesn't match anymore.
+ */
 @NullMarked
 public record ChunkCacheEntry(ChunkCacheKey key, byte[] compressedData) {
 
+  private static final int FORMAT_FULL = 0;
+  private static final int FORMAT_DELTA = 1;
+  private static final int FORMAT_FULL_WITH_EDITS = 2;
+
+  private static final int FORMAT_OFFSET = CacheRequest.HASH_LENGTH;
+  private static final int CODEC_OFFSET = FORMAT_OFFSET + 1;
+  private static final int LENGTH_OFFSET = CODEC_OFFSET + 1;
+  private static final int HEADER_LENGTH = LENGTH_OFFSET + Integer.BYTES;
+
+  // entries get created and decoded on a few threads only, so every thread keeps its own buffers
+  private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
   public static ChunkCacheEntry create(CacheRequest request, ObfuscationResponse response) {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    return create(request, response, CacheCodec.LZ4);
+  }
 
-    try (LZ4BlockOutputStream lz4BlockOutputStream = new LZ4BlockOutputStream(byteArrayOutputStream);
-        DataOutputStream dataOutputStream = new DataOutputStream(lz4BlockOutputStream)) {
+  public static ChunkCacheEntry create(CacheRequest request, ObfuscationResponse response, CacheCodec codec) {
+    Buffers buffers = BUFFERS.get();
+    buffers.body.reset();
 
-      byteArrayOutputStream.write(request.hash());
+    try {
+      DataOutputStream dataOutputStream = new DataOutputStream(buffers.body);
 
       byte[] data = response.data();
       dataOutputStream.writeInt(data.length);
       dataOutputStream.write(data, 0, data.length);
 
+      // everything after the chunk data is the body of the matching delta entry
+      int[] edits = response.edits();
+      if (edits != null) {
+        writeEdits(dataOutputStream, edits);
+      }
+
       Collection<ProximityBlock> proximityBlocks = response.proximityBlocks();
       dataOutputStream.writeInt(proximityBlocks.size());
       for (ProximityBlock blockPosition : proximityBlocks) {
@@ -43,11 +82,145 @@ public record ChunkCacheEntry(ChunkCacheKey key, byte[] compressedData) {
       for (BlockPos blockPosition : blockEntities) {
         dataOutputStream.writeInt(blockPosition.toSectionPos());
       }
+
+      if (edits != null) {
+        writeSectionHashes(dataOutputStream, response.sectionHashes());
+      }
+
+      int format = edits != null ? FORMAT_FULL_WITH_EDITS : FORMAT_FULL;
+      byte[] compressedData = encode(buffers, request.hash(), format, codec, buffers.body.buffer(), 0,
+          buffers.body.size());
+      return new ChunkCacheEntry(request.cacheKey(), compressedData);
     } catch (Exception e) {
       throw new ChunkCacheException("Unable to compress chunk: " + request.cacheKey(), e);
     }
+  }
+
+  private static byte[] encode(Buffers buffers, byte[] hash, int format, CacheCodec codec, byte[] body, int offset,
+      int length) throws IOException {
+    byte[] output = buffers.compressed(HEADER_LENGTH + codec.maxCompressedLength(length));
+
+    System.arraycopy(hash, 0, output, 0, CacheRequest.HASH_LENGTH);
+    output[FORMAT_OFFSET] = (byte) format;
+    output[CODEC_OFFSET] = (byte) codec.id();
+    ByteBuffer.wrap(output).putInt(LENGTH_OFFSET, length);
+
+    int compressedLength = codec.compress(body, offset, length, output, HEADER_LENGTH);
+    return Arrays.copyOf(output, HEADER_LENGTH + compressedLength);
+  }
+
+  /**
+   * Decompresses the body into the thread's body buffer and returns its length.
+   */
+  private int decompressBody(Buffers buffers) throws IOException {
+    CacheCodec codec = CacheCodec.byId(compressedData[CODEC_OFFSET]);
+
+    int length = ByteBuffer.wrap(compressedData).getInt(LENGTH_OFFSET);
+    if (length < 0) {
+      throw new IOException("Invalid body length: " + length);
+    }
+
+    byte[] body = buffers.decompressed(length);
+    codec.decompress(compressedData, HEADER_LENGTH, compressedData.length - HEADER_LENGTH, body, 0, length);
+    return length;
+  }
+
+  private static void writeEdits(DataOutput output, int[] edits) throws IOException {
+    output.writeInt(edits.length / 2);
+
+    // edits are mostly in ascending order, so position deltas usually fit into a single byte
+    int position = 0;
+    for (int i = 0; i < edits.length; i += 2) {
+      writeVarInt(output, edits[i] - position);
+      writeVarInt(output, edits[i + 1]);
+      position = edits[i];
+    }
+  }
+
+  private static int[] readEdits(DataInput input) throws IOException {
+    int[] edits = new int[input.readInt() * 2];
+
+    int position = 0;
+    for (int i = 0; i < edits.length; i += 2) {
+      position += readVarInt(input);
+      edits[i] = position;
+      edits[i + 1] = readVarInt(input);
+    }
+
+    return edits;
+  }
+
+  private static void writeSectionHashes(DataOutput output, @Nullable SectionHashes sectionHashes) throws IOException {
+    if (sectionHashes == null) {
+      output.writeInt(0);
+      return;
+    }
+
+    long[] hashes = sectionHashes.hashes();
+    output.writeInt(hashes.length);
+    for (int i = 0; i < hashes.length; i++) {
+      output.writeLong(hashes[i]);
+      output.writeBoolean(sectionHashes.dependsOnBelow()[i]);
+    }
+  }
+
+  private static @Nullable SectionHashes readSectionHashes(DataInput input) throws IOException {
+    int length = input.readInt();
+    if (length == 0) {
+      return null;
+    }
+
+    long[] hashes = new long[length];
+    boolean[] dependsOnBelow = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      hashes[i] = input.readLong();
+      dependsOnBelow[i] = input.readBoolean();
+    }
+
+    return new SectionHashes(hashes, dependsOnBelow);
+  }
+
+  private static byte[] replayEdits(int[] edits, ChunkFactory chunkFactory, ObfuscationRequest request) {
+    WorldConfigBundle bundle = request.world().config();
+    try (Chunk chunk = chunkFactory.fromPacket(request)) {
+      for (int start = 0, end; start < edits.length; start = end) {
+        int sectionIndex = edits[start] >>> 12;
+
+        end = start;
+        while (end < edits.length && edits[end] >>> 12 == sectionIndex) {
+          end += 2;
+        }
+
+        // same as during obfuscation, so that the palette grows at most once
+        ChunkSection chunkSection = chunk.getSection(sectionIndex);
+        chunkSection.setExpectedBlockStates(bundle.randomBlockStates(sectionIndex));
+
+        for (int i = start; i < end; i += 2) {
+          chunkSection.setBlockState(edits[i] & 0xFFF, edits[i + 1]);
+        }
+      }
+      return chunk.finalizeOutput();
+    }
+  }
+
+  private static void writeVarInt(DataOutput output, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      output.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.writeByte(value);
+  }
 
-    return new ChunkCacheEntry(request.cacheKey(), byteArrayOutputStream.toByteArray());
+  private static int readVarInt(DataInput input) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = input.readByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("VarInt too big");
   }
 
   public int estimatedSize() {
@@ -58,15 +231,104 @@ public record ChunkCacheEntry(ChunkCacheKey key, byte[] compressedData) {
     return Arrays.equals(compressedData, 0, CacheRequest.HASH_LENGTH, request.hash(), 0, CacheRequest.HASH_LENGTH);
   }
 
-  public ObfuscationResponse toResult() {
-    try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedData);
-        LZ4BlockInputStream lz4BlockInputStream = LZ4BlockInputStream.newBuilder().build(byteArrayInputStream);
-        DataInputStream dataInputStream = new DataInputStream(lz4BlockInputStream)) {
+  /**
+   * Returns this entry compressed with the given codec, entries that already use it get returned as is.
+   */
+  public ChunkCacheEntry withCodec(CacheCodec codec) {
+    if (compressedData[CODEC_OFFSET] == codec.id()) {
+      return this;
+    }
+
+    try {
+      Buffers buffers = BUFFERS.get();
+      int length = this.decompressBody(buffers);
+      byte[] data = encode(buffers, compressedData, compressedData[FORMAT_OFFSET], codec, buffers.decompressed, 0,
+          length);
+      return new ChunkCacheEntry(key, data);
+    } catch (Exception e) {
+      throw new ChunkCacheException("Unable to recompress chunk: " + key, e);
+    }
+  }
+
+  /**
+   * Returns this entry as a delta entry compressed with the given codec, which is the form entries get stored on disk
+   * in. Entries without edits only get recompressed.
+   */
+  public ChunkCacheEntry toDelta(CacheCodec codec) {
+    if (compressedData[FORMAT_OFFSET] != FORMAT_FULL_WITH_EDITS) {
+      return this.withCodec(codec);
+    }
+
+    try {
+      Buffers buffers = BUFFERS.get();
+      int length = this.decompressBody(buffers);
+
+      // drop the chunk data in front of the delta body
+      int offset = Integer.BYTES + ByteBuffer.wrap(buffers.decompressed).getInt(0);
+      byte[] data = encode(buffers, compressedData, FORMAT_DELTA, codec, buffers.decompressed, offset,
+          length - offset);
+      return new ChunkCacheEntry(key, data);
+    } catch (Exception e) {
+      throw new ChunkCacheException("Unable to recompress chunk: " + key, e);
+    }
+  }
+
+  /**
+   * Returns {@code true} if restoring this entry has to replay its edits onto the original packet.
+   */
+  public boolean isDelta() {
+    return compressedData[FORMAT_OFFSET] == FORMAT_DELTA;
+  }
+
+  /**
+   * Restores the obfuscation result for the given request, which has to be the one this entry is valid for. Delta
+   * entries get replayed onto the request's packet using the given chunk factory.
+   */
+  public ObfuscationResponse toResult(ChunkFactory chunkFactory, ObfuscationRequest request) {
+    return Objects.requireNonNull(this.decode(chunkFactory, request));
+  }
+
+  /**
+   * Returns the edits, proximity blocks and block entities of this entry without restoring any chunk data, so that the
+   * sections that didn't change can be reused once the chunk changed. Returns {@code null} if the entry has no section
+   * hashes.
+   */
+  public @Nullable ObfuscationResponse toPreviousResult() {
+    ObfuscationResponse response = this.decode(null, null);
+    return response != null && response.sectionHashes() != null ? response : null;
+  }
 
-      byteArrayInputStream.skip(CacheRequest.HASH_LENGTH);
+  private @Nullable ObfuscationResponse decode(@Nullable ChunkFactory chunkFactory,
+      @Nullable ObfuscationRequest request) {
+    try {
+      int format = compressedData[FORMAT_OFFSET];
+      if (format == FORMAT_FULL && chunkFactory == null) {
+        return null;
+      }
 
-      byte[] data = new byte[dataInputStream.readInt()];
-      dataInputStream.readFully(data);
+      Buffers buffers = BUFFERS.get();
+      int length = this.decompressBody(buffers);
+      DataInputStream dataInputStream = new DataInputStream(
+          new ByteArrayInputStream(buffers.decompressed, 0, length));
+
+      if (format != FORMAT_FULL && format != FORMAT_DELTA && format != FORMAT_FULL_WITH_EDITS) {
+        throw new IOException("Unknown cache entry format: " + format);
+      }
+
+      byte[] data = null;
+      if (format != FORMAT_DELTA) {
+        if (chunkFactory != null) {
+          data = new byte[dataInputStream.readInt()];
+          dataInputStream.readFully(data);
+        } else {
+          dataInputStream.skipBytes(dataInputStream.readInt());
+        }
+      }
+
+      int[] edits = null;
+      if (format != FORMAT_FULL) {
+        edits = readEdits(dataInputStream);
+      }
 
       int x = key.x() << 4;
       int z = key.z() << 4;
@@ -83,9 +345,49 @@ public record ChunkCacheEntry(ChunkCacheKey key, byte[] compressedData) {
         blockEntities.add(BlockPos.fromSectionPos(x, z, dataInputStream.readInt()));
       }
 
-      return new ObfuscationResponse(data, blockEntities, proximityBlocks);
+      SectionHashes sectionHashes = null;
+      if (edits != null) {
+        sectionHashes = readSectionHashes(dataInputStream);
+      }
+
+      if (data == null) {
+        data = chunkFactory != null && request != null && edits != null
+            ? replayEdits(edits, chunkFactory, request)
+            : new byte[0];
+      }
+
+      return new ObfuscationResponse(data, blockEntities, proximityBlocks, edits, sectionHashes);
     } catch (Exception e) {
       throw new ChunkCacheException("Unable to decompress chunk: " + key, e);
     }
   }
+
+  private static class Buffers {
+
+    private final BodyOutputStream body = new BodyOutputStream();
+
+    private byte[] compressed = new byte[0];
+    private byte[] decompressed = new byte[0];
+
+    public byte[] compressed(int length) {
+      if (this.compressed.length < length) {
+        this.compressed = new byte[length];
+      }
+      return this.compressed;
+    }
+
+    public byte[] decompressed(int length) {
+      if (this.decompressed.length < length) {
+        this.decompressed = new byte[length];
+      }
+      return this.decompressed;
+    }
+  }
+
+  private static class BodyOutputStream extends ByteArrayOutputStream {
+
+    public byte[] buffer() {
+      return this.buf;
+    }
+  }
 }
@@ -1,8 +1,8 @@
 package dev.imprex.orebfuscator.cache;
 
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import dev.imprex.orebfuscator.statistics.CacheStatistics;
@@ -11,45 +11,53 @@ import dev.imprex.orebfuscator.util.ChunkCacheKey;
 @NullMarked
 public class ChunkSerializer {
 
-  private static final int CACHE_VERSION = 3;
+  static final int CACHE_VERSION = 6;
 
   private final AbstractRegionFileCache<?> regionFileCache;
   private final CacheStatistics statistics;
+  private final CacheCodec codec;
 
-  public ChunkSerializer(AbstractRegionFileCache<?> regionFileCache, CacheStatistics statistics) {
+  public ChunkSerializer(AbstractRegionFileCache<?> regionFileCache, CacheStatistics statistics, CacheCodec codec) {
     this.regionFileCache = regionFileCache;
     this.statistics = statistics;
+    this.codec = codec;
   }
 
   @Nullable
   public ChunkCacheEntry read(ChunkCacheKey key) throws IOException {
-    try (DataInputStream dataInputStream = this.regionFileCache.createInputStream(key)) {
-      // check if cache entry has right version and if chunk is present
-      if (dataInputStream == null || dataInputStream.readInt() != CACHE_VERSION || !dataInputStream.readBoolean()) {
-        statistics.onDiskCacheRead(5);
-        return null;
-      }
+    try {
+      ChunkCacheEntry chunkCacheEntry = this.regionFileCache.read(key, buffer -> {
+        // check if cache entry has right version and if chunk is present
+        if (buffer.getInt() != CACHE_VERSION || buffer.get() == 0) {
+          return null;
+        }
 
-      byte[] compressedData = new byte[dataInputStream.readInt()];
-      dataInputStream.readFully(compressedData);
+        // copy straight from the region file buffer, for mapped region files this is the only copy
+        byte[] compressedData = new byte[buffer.getInt()];
+        buffer.get(compressedData);
 
-      statistics.onDiskCacheRead(9 + compressedData.length);
+        return new ChunkCacheEntry(key, compressedData);
+      });
 
-      return new ChunkCacheEntry(key, compressedData);
-    } catch (IOException e) {
+      statistics.onDiskCacheRead(chunkCacheEntry != null ? 9 + chunkCacheEntry.compressedData().length : 5);
+
+      return chunkCacheEntry;
+    } catch (IOException | BufferUnderflowException e) {
       throw new IOException("Unable to read chunk: " + key, e);
     }
   }
 
   public void write(ChunkCacheKey key, @Nullable ChunkCacheEntry value) throws IOException {
+    // disk entries only keep the edits, convert here so that slow codecs only cost time on the serializer threads and
+    // before opening the output stream so that an entry that can't be converted doesn't leave a truncated entry behind
+    byte[] compressedData = value != null ? value.toDelta(this.codec).compressedData() : null;
+
     try (DataOutputStream dataOutputStream = this.regionFileCache.createOutputStream(key)) {
       dataOutputStream.writeInt(CACHE_VERSION);
       // TODO: merge present boolean (and future flags) into the int32 version field wher int16 for version and int16 for flags
 
-      if (value != null) {
+      if (compressedData != null) {
         dataOutputStream.writeBoolean(true);
-
-        byte[] compressedData = value.compressedData();
         dataOutputStream.writeInt(compressedData.length);
         dataOutputStream.write(compressedData);
         statistics.onDiskCacheWrite(9 + compressedData.length);
@@ -61,4 +69,12 @@ public class ChunkSerializer {
       throw new IOException("Unable to write chunk: " + key, e);
     }
   }
+
+  public void flush(ChunkCacheKey key) throws IOException {
+    try {
+      this.regionFileCache.flush(key);
+    } catch (IOException e) {
+      throw new IOException("Unable to flush region file: " + key, e);
+    }
+  }
 }
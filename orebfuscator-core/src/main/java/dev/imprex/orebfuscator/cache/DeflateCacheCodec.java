@@ -0,0 +1,74 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Deflate with one reusable deflater and inflater per thread, since both hold native state that is expensive to create.
+ */
+@NullMarked
+class DeflateCacheCodec implements CacheCodec {
+
+  private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(
+      () -> new Deflater(Deflater.DEFAULT_COMPRESSION));
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+  private final int id;
+
+  DeflateCacheCodec(int id) {
+    this.id = id;
+  }
+
+  @Override
+  public int id() {
+    return this.id;
+  }
+
+  @Override
+  public int maxCompressedLength(int length) {
+    // zlib's deflateBound plus header and checksum
+    return length + (length >> 12) + (length >> 14) + (length >> 25) + 13 + 6;
+  }
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset) throws IOException {
+    Deflater deflater = DEFLATER.get();
+    try {
+      deflater.setInput(src, srcOffset, srcLength);
+      deflater.finish();
+
+      int length = 0;
+      while (!deflater.finished()) {
+        int count = deflater.deflate(dest, destOffset + length, dest.length - destOffset - length);
+        if (count == 0 && destOffset + length == dest.length) {
+          throw new IOException("Compressed data exceeds maximum length: " + this.maxCompressedLength(srcLength));
+        }
+        length += count;
+      }
+      return length;
+    } finally {
+      deflater.reset();
+    }
+  }
+
+  @Override
+  public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength)
+      throws IOException {
+    Inflater inflater = INFLATER.get();
+    try {
+      inflater.setInput(src, srcOffset, srcLength);
+
+      int length = inflater.inflate(dest, destOffset, destLength);
+      if (length != destLength || !inflater.finished()) {
+        throw new IOException("Length mismatch: " + length + " != " + destLength);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    } finally {
+      inflater.reset();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package dev.imprex.orebfuscator.cache;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Count-min sketch with four 4-bit counters per element, used to estimate how often an element got accessed recently.
+ * All counters get halved once the number of additions reaches ten times the table size, so old popularity fades.
+ * Not thread-safe.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+@NullMarked
+class FrequencySketch {
+
+  private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private static int rehash(int hash, int seed) {
+    int h = (hash ^ (hash >>> 16)) * seed;
+    return h ^ (h >>> 15);
+  }
+
+  private long[] table = new long[0];
+  private int tableMask;
+  private int sampleSize;
+  private int additions;
+
+  /**
+   * Grows the sketch to fit the given number of elements, this resets all counters.
+   */
+  public void ensureCapacity(int maximumSize) {
+    int size = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+    if (this.table.length >= size) {
+      return;
+    }
+
+    this.table = new long[size];
+    this.tableMask = size - 1;
+    this.sampleSize = 10 * size;
+    this.additions = 0;
+  }
+
+  public int capacity() {
+    return this.table.length;
+  }
+
+  public int frequency(int hash) {
+    int frequency = 15;
+    for (int seed : SEEDS) {
+      int h = rehash(hash, seed);
+      int shift = (h >>> 28) << 2;
+      frequency = Math.min(frequency, (int) (this.table[h & this.tableMask] >>> shift) & 15);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the frequency of the given element using conservative update, only counters equal to the current
+   * estimate get incremented which reduces the overestimation caused by collisions.
+   */
+  public void increment(int hash) {
+    int frequency = this.frequency(hash);
+    if (frequency == 15) {
+      return;
+    }
+
+    for (int seed : SEEDS) {
+      int h = rehash(hash, seed);
+      int index = h & this.tableMask;
+      int shift = (h >>> 28) << 2;
+
+      if (((this.table[index] >>> shift) & 15) == frequency) {
+        this.table[index] += 1L << shift;
+      }
+    }
+
+    if (++this.additions >= this.sampleSize) {
+      this.reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < this.table.length; i++) {
+      this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+    }
+    this.additions >>>= 1;
+  }
+}
@@ -0,0 +1,101 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.statistics.CacheStatistics;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * Memory cache keeping entries on the heap, bounded by entry count.
+ */
+@NullMarked
+public class HeapMemoryCache implements MemoryCache {
+
+  private final CacheStatistics statistics;
+  private final Consumer<ChunkCacheEntry> evictionListener;
+
+  private final Cache<ChunkCacheKey, Entry> cache;
+
+  public HeapMemoryCache(CacheConfig cacheConfig, CacheStatistics statistics,
+      Consumer<ChunkCacheEntry> evictionListener) {
+    this.statistics = statistics;
+    this.evictionListener = evictionListener;
+
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(cacheConfig.maximumSize())
+        .expireAfterAccess(cacheConfig.expireAfterAccess(), TimeUnit.MILLISECONDS)
+        .removalListener(this::onRemoval)
+        .build();
+  }
+
+  private void onRemoval(RemovalNotification<ChunkCacheKey, Entry> notification) {
+    assert notification.getValue() != null;
+    ChunkCacheEntry entry = notification.getValue().entry;
+    this.statistics.onCacheSizeChange(-entry.estimatedSize());
+
+    if (notification.wasEvicted()) {
+      this.evictionListener.accept(entry);
+    }
+  }
+
+  @Override
+  public @Nullable ChunkCacheEntry get(ChunkCacheKey key) {
+    Entry entry = this.cache.getIfPresent(key);
+    if (entry == null) {
+      return null;
+    }
+
+    entry.accessTime = System.nanoTime();
+    return entry.entry;
+  }
+
+  @Override
+  public void put(ChunkCacheEntry entry) {
+    this.cache.put(entry.key(), new Entry(entry));
+    this.statistics.onCacheSizeChange(entry.estimatedSize());
+  }
+
+  @Override
+  public void invalidate(ChunkCacheKey key) {
+    this.cache.invalidate(key);
+  }
+
+  @Override
+  public long size() {
+    return this.cache.size();
+  }
+
+  @Override
+  public void drain(Consumer<ChunkCacheEntry> consumer) {
+    List<Entry> entries = new ArrayList<>(this.cache.asMap().values());
+    entries.sort(Comparator.comparingLong((Entry entry) -> entry.accessTime).reversed());
+
+    this.cache.invalidateAll();
+
+    for (Entry entry : entries) {
+      consumer.accept(entry.entry);
+    }
+  }
+
+  /**
+   * Guava doesn't expose its access order, so every entry tracks its own access time for {@link #drain(Consumer)}.
+   */
+  private static class Entry {
+
+    private final ChunkCacheEntry entry;
+    private volatile long accessTime = System.nanoTime();
+
+    public Entry(ChunkCacheEntry entry) {
+      this.entry = entry;
+    }
+  }
+}
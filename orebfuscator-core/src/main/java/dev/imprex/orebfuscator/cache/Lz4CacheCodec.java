@@ -0,0 +1,58 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Uses the LZ4 block format directly, unlike the LZ4 streams this doesn't allocate any buffers per entry. Fast and high
+ * compression share the same decompressor.
+ */
+@NullMarked
+class Lz4CacheCodec implements CacheCodec {
+
+  private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+  private final int id;
+  private final LZ4Compressor compressor;
+
+  Lz4CacheCodec(int id, LZ4Compressor compressor) {
+    this.id = id;
+    this.compressor = compressor;
+  }
+
+  @Override
+  public int id() {
+    return this.id;
+  }
+
+  @Override
+  public int maxCompressedLength(int length) {
+    return this.compressor.maxCompressedLength(length);
+  }
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset) throws IOException {
+    try {
+      return this.compressor.compress(src, srcOffset, srcLength, dest, destOffset, dest.length - destOffset);
+    } catch (LZ4Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength)
+      throws IOException {
+    try {
+      int length = DECOMPRESSOR.decompress(src, srcOffset, srcLength, dest, destOffset, destLength);
+      if (length != destLength) {
+        throw new IOException("Length mismatch: " + length + " != " + destLength);
+      }
+    } catch (LZ4Exception e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.util.function.Consumer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * In-memory tier of the {@link ObfuscationCache}. Implementations report their size changes to the cache statistics
+ * and pass entries they evict on their own to the eviction listener.
+ */
+@NullMarked
+public interface MemoryCache {
+
+  @Nullable ChunkCacheEntry get(ChunkCacheKey key);
+
+  void put(ChunkCacheEntry entry);
+
+  void invalidate(ChunkCacheKey key);
+
+  long size();
+
+  /**
+   * Removes all entries and passes each of them to the given consumer, hottest entries first.
+   */
+  void drain(Consumer<ChunkCacheEntry> consumer);
+}
@@ -0,0 +1,155 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
+import dev.imprex.orebfuscator.logging.OfcLogger;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * Single sequential file holding the hottest memory cache entries, hottest first, so that the memory cache doesn't start
+ * out cold after a restart. Entries get validated by their hash as usual, so a snapshot never has to be up to date.
+ * <p>
+ * Entries in the snapshot don't get flushed to the region files, which keeps shutdown down to a single sequential
+ * write for the hottest entries. It gets written on its own thread as soon as it is full, while the remaining entries
+ * are still being flushed to the region files.
+ */
+@NullMarked
+public class MemoryCacheSnapshot {
+
+  private static final String FILE_NAME = "memory-cache.snapshot";
+
+  public static Path path(Path baseDirectory) {
+    return baseDirectory.resolve(FILE_NAME);
+  }
+
+  /**
+   * Reads at most {@code maximumSize} entries, hottest first, and deletes the snapshot afterwards so that it only gets
+   * restored once. Returns an empty list if there is no snapshot or it was written by an incompatible version.
+   */
+  public static List<ChunkCacheEntry> read(Path path, int maximumSize) throws IOException {
+    List<ChunkCacheEntry> entries = new ArrayList<>();
+
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (inputStream.readInt() != ChunkSerializer.CACHE_VERSION) {
+        return entries;
+      }
+
+      int count = Math.min(inputStream.readInt(), maximumSize);
+      for (int i = 0; i < count; i++) {
+        var key = new ChunkCacheKey(inputStream.readUTF(), inputStream.readInt(), inputStream.readInt());
+
+        byte[] compressedData = new byte[inputStream.readInt()];
+        inputStream.readFully(compressedData);
+
+        entries.add(new ChunkCacheEntry(key, compressedData));
+      }
+    } catch (NoSuchFileException e) {
+      return entries;
+    } finally {
+      Files.deleteIfExists(path);
+    }
+
+    return entries;
+  }
+
+  private final Path path;
+  private final int maximumSize;
+
+  private final List<ChunkCacheEntry> entries = new ArrayList<>();
+  private @Nullable Thread thread;
+  private volatile boolean written = false;
+
+  public MemoryCacheSnapshot(Path path, int maximumSize) {
+    this.path = path;
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Adds the given entry to the snapshot and returns {@code true} or returns {@code false} if the snapshot is already
+   * full. Entries have to be added hottest first.
+   */
+  public boolean add(ChunkCacheEntry entry) {
+    if (this.thread != null) {
+      return false;
+    }
+
+    this.entries.add(entry);
+    if (this.entries.size() >= this.maximumSize) {
+      this.start();
+    }
+    return true;
+  }
+
+  private void start() {
+    this.thread = new Thread(OrebfuscatorCore.THREAD_GROUP, this::write, "ofc-cache-snapshot");
+    this.thread.start();
+  }
+
+  /**
+   * Writes the snapshot if that didn't happen yet, waits for it to finish and returns {@code true} if the snapshot got
+   * written.
+   */
+  public boolean close() {
+    if (this.thread == null) {
+      this.start();
+    }
+
+    try {
+      this.thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return this.written;
+  }
+
+  /**
+   * Returns all entries added to this snapshot, hottest first.
+   */
+  public List<ChunkCacheEntry> entries() {
+    return this.entries;
+  }
+
+  private void write() {
+    Path temporaryPath = this.path.resolveSibling(FILE_NAME + ".tmp");
+
+    try {
+      Files.createDirectories(this.path.getParent());
+
+      try (DataOutputStream outputStream = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+        outputStream.writeInt(ChunkSerializer.CACHE_VERSION);
+        outputStream.writeInt(this.entries.size());
+
+        for (ChunkCacheEntry entry : this.entries) {
+          ChunkCacheKey key = entry.key();
+          outputStream.writeUTF(key.world());
+          outputStream.writeInt(key.x());
+          outputStream.writeInt(key.z());
+
+          byte[] compressedData = entry.compressedData();
+          outputStream.writeInt(compressedData.length);
+          outputStream.write(compressedData);
+        }
+      }
+
+      // never leave a partially written snapshot behind
+      Files.move(temporaryPath, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      this.written = true;
+      OfcLogger.debug("Wrote " + this.entries.size() + " entries to memory cache snapshot");
+    } catch (IOException e) {
+      OfcLogger.error("Unable to write memory cache snapshot: " + this.path, e);
+    }
+  }
+}
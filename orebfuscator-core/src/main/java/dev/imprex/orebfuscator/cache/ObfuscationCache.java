@@ -1,17 +1,19 @@
 package dev.imprex.orebfuscator.cache;
 
-import java.util.Optional;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalNotification;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
 import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.DiskCacheFormat;
+import dev.imprex.orebfuscator.config.api.MemoryCachePolicy;
 import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
 import dev.imprex.orebfuscator.logging.OfcLogger;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
 import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
 import dev.imprex.orebfuscator.statistics.CacheStatistics;
 import dev.imprex.orebfuscator.util.ChunkCacheKey;
@@ -24,25 +26,37 @@ public class ObfuscationCache {
   private final CacheConfig cacheConfig;
   private final CacheStatistics statistics;
   private final OrebfuscatorExecutor executor;
+  private final ChunkFactory chunkFactory;
+  private final CacheCodec memoryCodec;
 
   private final AbstractRegionFileCache<?> regionFileCache;
-  private final Cache<ChunkCacheKey, ChunkCacheEntry> cache;
+  private final MemoryCache cache;
   private final @Nullable AsyncChunkSerializer serializer;
+  private final @Nullable Path snapshotPath;
+  private final CompletableFuture<Void> snapshotRestored;
 
   public ObfuscationCache(OrebfuscatorCore orebfuscator) {
     this.orebfuscator = orebfuscator;
     this.cacheConfig = orebfuscator.config().cache();
     this.statistics = orebfuscator.statistics().cache;
     this.executor = orebfuscator.executor();
+    this.chunkFactory = orebfuscator.chunkFactory();
+    this.memoryCodec = CacheCodec.forCompression(this.cacheConfig.memoryCacheCompression());
 
-    this.cache = CacheBuilder.newBuilder()
-        .maximumSize(this.cacheConfig.maximumSize())
-        .expireAfterAccess(this.cacheConfig.expireAfterAccess(), TimeUnit.MILLISECONDS)
-        .removalListener(this::onRemoval)
-        .build();
+    if (this.cacheConfig.offHeap()) {
+      this.cache = new OffHeapMemoryCache(this.cacheConfig, this.statistics, this::onEviction);
+    } else if (this.cacheConfig.memoryCachePolicy() == MemoryCachePolicy.TINY_LFU) {
+      this.cache = new TinyLfuMemoryCache(this.cacheConfig, this.statistics, this::onEviction);
+    } else {
+      this.cache = new HeapMemoryCache(this.cacheConfig, this.statistics, this::onEviction);
+    }
     this.statistics.setMemoryCacheEntryCount(this.cache::size);
 
-    this.regionFileCache = orebfuscator.createRegionFileCache();
+    if (this.cacheConfig.diskCacheFormat() == DiskCacheFormat.NATIVE) {
+      this.regionFileCache = new OrebfuscatorRegionFileCache(this.cacheConfig);
+    } else {
+      this.regionFileCache = orebfuscator.createRegionFileCache();
+    }
 
     if (this.cacheConfig.enableDiskCache()) {
       this.serializer = new AsyncChunkSerializer(orebfuscator, regionFileCache);
@@ -50,41 +64,72 @@ public class ObfuscationCache {
       this.serializer = null;
     }
 
+    // the snapshot lives next to the region files, so it needs the disk cache as well
+    if (this.serializer != null && this.cacheConfig.memoryCacheSnapshotSize() > 0) {
+      Path snapshotPath = MemoryCacheSnapshot.path(this.cacheConfig.baseDirectory());
+      this.snapshotRestored = CompletableFuture.runAsync(() -> this.restoreSnapshot(snapshotPath), this.executor);
+      this.snapshotPath = snapshotPath;
+    } else {
+      this.snapshotRestored = CompletableFuture.completedFuture(null);
+      this.snapshotPath = null;
+    }
+
     if (this.cacheConfig.enabled() && this.cacheConfig.deleteRegionFilesAfterAccess() > 0) {
       var task = new CacheFileCleanupTask(orebfuscator.config(), regionFileCache);
       this.executor.scheduleAtFixedRate(task, 0, 1, TimeUnit.HOURS);
     }
   }
 
-  private void onRemoval(RemovalNotification<ChunkCacheKey, ChunkCacheEntry> notification) {
-    assert notification.getValue() != null;
-    this.statistics.onCacheSizeChange(-notification.getValue().estimatedSize());
+  private void restoreSnapshot(Path path) {
+    try {
+      List<ChunkCacheEntry> entries = MemoryCacheSnapshot.read(path, this.cacheConfig.memoryCacheSnapshotSize());
+
+      // coldest first, so that the hottest entries end up as the most recently used ones
+      for (int i = entries.size() - 1; i >= 0; i--) {
+        this.cache.put(entries.get(i).withCodec(this.memoryCodec));
+      }
 
+      OfcLogger.debug("Restored " + entries.size() + " entries from memory cache snapshot");
+    } catch (Exception e) {
+      OfcLogger.error("Unable to restore memory cache snapshot: " + path, e);
+    }
+  }
+
+  private void onEviction(ChunkCacheEntry entry) {
     // don't serialize invalidated chunks since this would require locking the main
     // thread and wouldn't bring a huge improvement
-    if (this.serializer != null && notification.wasEvicted() && !orebfuscator.isGameThread()) {
-      assert notification.getKey() != null;
-      this.serializer.write(notification.getKey(), notification.getValue());
+    if (this.serializer != null && !orebfuscator.isGameThread()) {
+      this.serializer.write(entry.key(), entry);
     }
   }
 
-  public CompletionStage<Optional<ObfuscationResponse>> get(CacheRequest request) {
+  public CompletionStage<CacheLookup> get(CacheRequest request, ObfuscationRequest obfuscationRequest) {
     return probeCaches(request).thenApplyAsync(response -> {
       if (response instanceof CacheResponse.Success success) {
-        return Optional.of(success.entry().toResult());
-      } else {
-        this.statistics.onCacheMiss();
-        return Optional.<ObfuscationResponse>empty();
+        ChunkCacheEntry entry = success.entry();
+        ObfuscationResponse result = entry.toResult(this.chunkFactory, obfuscationRequest);
+        if (entry.isDelta()) {
+          // delta entries come from disk, keep the restored chunk in memory so that later hits don't replay it again
+          this.add(request, result);
+        }
+        return CacheLookup.hit(result);
       }
+
+      this.statistics.onCacheMiss();
+      if (response instanceof CacheResponse.Stale stale) {
+        return CacheLookup.previous(stale.entry().toPreviousResult());
+      }
+      return CacheLookup.MISS;
     }, this.executor).exceptionallyAsync(throwable -> {
       OfcLogger.error("An error occurred while trying to get cache entry for request: %s".formatted(request),
           throwable);
-      return Optional.<ObfuscationResponse>empty();
+      return CacheLookup.MISS;
     }, this.executor);
   }
 
   private CompletionStage<CacheResponse> probeCaches(CacheRequest request) {
-    var future = CompletableFuture.supplyAsync(() -> probeMemory(request), this.executor);
+    // wait for the snapshot restore, otherwise early requests would miss entries that are about to be restored
+    var future = this.snapshotRestored.thenApplyAsync(ignored -> probeMemory(request), this.executor);
 
     if (this.serializer != null) {
       future = future.thenComposeAsync(response ->
@@ -99,14 +144,16 @@ public class ObfuscationCache {
   }
 
   private CacheResponse probeMemory(CacheRequest request) {
-    ChunkCacheEntry cacheEntry = this.cache.getIfPresent(request.cacheKey());
+    ChunkCacheEntry cacheEntry = this.cache.get(request.cacheKey());
 
     if (cacheEntry == null) {
       return CacheResponse.Failure.NOT_FOUND;
     } else if (!cacheEntry.isValid(request)) {
       // invalidate invalid in-memory cache entries
       this.cache.invalidate(request.cacheKey());
-      return CacheResponse.Failure.MEMORY_INVALID;
+      return this.cacheConfig.reuseSections()
+          ? new CacheResponse.Stale(cacheEntry)
+          : CacheResponse.Failure.MEMORY_INVALID;
     }
 
     this.statistics.onCacheHitMemory();
@@ -118,12 +165,22 @@ public class ObfuscationCache {
       if (cacheEntry == null) {
         return CacheResponse.Failure.NOT_FOUND;
       } else if (!cacheEntry.isValid(request)) {
-        return CacheResponse.Failure.DISK_INVALID;
+        return this.cacheConfig.reuseSections()
+            ? new CacheResponse.Stale(cacheEntry)
+            : CacheResponse.Failure.DISK_INVALID;
       }
 
-      // add valid disk cache entry to in-memory cache
-      this.cache.put(request.cacheKey(), cacheEntry);
-      this.statistics.onCacheSizeChange(cacheEntry.estimatedSize());
+      // add valid disk cache entry to in-memory cache, disk entries might use a slower codec and delta entries get added
+      // once they got restored
+      if (!cacheEntry.isDelta()) {
+        try {
+          this.cache.put(cacheEntry.withCodec(this.memoryCodec));
+        } catch (ChunkCacheException e) {
+          // treat corrupt entries as missing, the chunk gets obfuscated again and overwrites them eventually
+          OfcLogger.error(e);
+          return CacheResponse.Failure.NOT_FOUND;
+        }
+      }
 
       this.statistics.onCacheHitDisk();
       return CacheResponse.success(cacheEntry);
@@ -132,9 +189,8 @@ public class ObfuscationCache {
 
   public void add(CacheRequest request, ObfuscationResponse response) {
     try {
-      var entry = ChunkCacheEntry.create(request, response);
-      this.cache.put(request.cacheKey(), entry);
-      this.statistics.onCacheSizeChange(entry.estimatedSize());
+      var entry = ChunkCacheEntry.create(request, response, this.memoryCodec);
+      this.cache.put(entry);
     } catch (Exception e) {
       OfcLogger.error("An error occurred while trying to cache entry for request: %s".formatted(request), e);
     }
@@ -146,13 +202,27 @@ public class ObfuscationCache {
 
   public void close() {
     if (this.serializer != null) {
-      // flush memory cache to disk on shutdown
-      this.cache.asMap().entrySet().removeIf(entry -> {
-        this.serializer.write(entry.getKey(), entry.getValue());
-        return true;
+      // flush memory cache on shutdown, the hottest entries go into the snapshot and only the rest gets written to the
+      // region files while the snapshot is being written
+      var snapshot = this.snapshotPath != null
+          ? new MemoryCacheSnapshot(this.snapshotPath, this.cacheConfig.memoryCacheSnapshotSize())
+          : null;
+      this.cache.drain(entry -> {
+        if (snapshot == null || !snapshot.add(entry)) {
+          this.serializer.write(entry.key(), entry);
+        }
       });
 
+      // don't lose the snapshot's entries if it couldn't be written
+      if (snapshot != null && !snapshot.close()) {
+        for (ChunkCacheEntry entry : snapshot.entries()) {
+          this.serializer.write(entry.key(), entry);
+        }
+      }
       this.serializer.close();
+    } else {
+      // off-heap entries don't get freed by the garbage collector
+      this.cache.drain(entry -> {});
     }
 
     this.regionFileCache.clear();
@@ -0,0 +1,141 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.statistics.CacheStatistics;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Memory cache keeping the compressed entries in direct buffers, bounded by the total size of those buffers. Entries
+ * only get copied back onto the heap for the duration of a request, which keeps them out of the old generation.
+ */
+@NullMarked
+public class OffHeapMemoryCache implements MemoryCache {
+
+  private final CacheStatistics statistics;
+  private final Consumer<ChunkCacheEntry> evictionListener;
+
+  private final Cache<ChunkCacheKey, Entry> cache;
+
+  public OffHeapMemoryCache(CacheConfig cacheConfig, CacheStatistics statistics,
+      Consumer<ChunkCacheEntry> evictionListener) {
+    this.statistics = statistics;
+    this.evictionListener = evictionListener;
+
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(cacheConfig.maximumBytes())
+        .weigher((ChunkCacheKey key, Entry entry) -> entry.byteSize)
+        .expireAfterAccess(cacheConfig.expireAfterAccess(), TimeUnit.MILLISECONDS)
+        .removalListener(this::onRemoval)
+        .build();
+  }
+
+  private void onRemoval(RemovalNotification<ChunkCacheKey, Entry> notification) {
+    Entry entry = notification.getValue();
+    assert entry != null;
+
+    if (notification.wasEvicted()) {
+      ChunkCacheEntry cacheEntry = entry.copy();
+      if (cacheEntry != null) {
+        this.evictionListener.accept(cacheEntry);
+      }
+    }
+
+    entry.release();
+  }
+
+  @Override
+  public @Nullable ChunkCacheEntry get(ChunkCacheKey key) {
+    Entry entry = this.cache.getIfPresent(key);
+    if (entry == null) {
+      return null;
+    }
+
+    entry.accessTime = System.nanoTime();
+    return entry.copy();
+  }
+
+  @Override
+  public void put(ChunkCacheEntry entry) {
+    this.cache.put(entry.key(), new Entry(entry));
+  }
+
+  @Override
+  public void invalidate(ChunkCacheKey key) {
+    this.cache.invalidate(key);
+  }
+
+  @Override
+  public long size() {
+    return this.cache.size();
+  }
+
+  @Override
+  public void drain(Consumer<ChunkCacheEntry> consumer) {
+    List<Entry> entries = new ArrayList<>(this.cache.asMap().values());
+    entries.sort(Comparator.comparingLong((Entry entry) -> entry.accessTime).reversed());
+
+    // copy and remove one entry at a time so that all entries are never on the heap at once
+    for (Entry entry : entries) {
+      ChunkCacheEntry cacheEntry = entry.copy();
+      this.cache.asMap().remove(entry.key, entry);
+
+      if (cacheEntry != null) {
+        consumer.accept(cacheEntry);
+      }
+    }
+  }
+
+  private class Entry {
+
+    private final ChunkCacheKey key;
+    private final int byteSize;
+
+    private @Nullable ByteBuf buffer;
+    private volatile long accessTime = System.nanoTime();
+
+    public Entry(ChunkCacheEntry entry) {
+      byte[] compressedData = entry.compressedData();
+
+      this.key = entry.key();
+      this.buffer = ByteBufAllocator.DEFAULT.directBuffer(compressedData.length, compressedData.length);
+      this.buffer.writeBytes(compressedData);
+      this.byteSize = this.buffer.capacity();
+
+      statistics.onCacheSizeChange(this.byteSize);
+    }
+
+    /**
+     * Returns a heap copy of this entry or {@code null} if it got released concurrently.
+     */
+    public synchronized @Nullable ChunkCacheEntry copy() {
+      if (this.buffer == null) {
+        return null;
+      }
+
+      byte[] compressedData = new byte[this.buffer.readableBytes()];
+      this.buffer.getBytes(this.buffer.readerIndex(), compressedData);
+      return new ChunkCacheEntry(this.key, compressedData);
+    }
+
+    public synchronized void release() {
+      if (this.buffer != null) {
+        this.buffer.release();
+        this.buffer = null;
+
+        statistics.onCacheSizeChange(-this.byteSize);
+      }
+    }
+  }
+}
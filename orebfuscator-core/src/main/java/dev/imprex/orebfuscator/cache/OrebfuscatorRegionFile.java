@@ -0,0 +1,323 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.cache.AbstractRegionFileCache.EntryReader;
+import dev.imprex.orebfuscator.logging.OfcLogger;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Region file holding up to 32x32 cache entries. Unlike vanilla region files this format uses 256 byte sectors since
+ * our entries are small LZ4 blobs and checksums every entry as well as the header itself.
+ * <p>
+ * Layout: a header of {@link #HEADER_SECTORS} sectors containing magic, version, an index entry (sector offset, length,
+ * crc32) per chunk and a crc32 of the header followed by the entry data. Entries are never overwritten in place, new
+ * data gets written to free sectors first and the header only gets written on {@link #flush()} or {@link #close()}.
+ * After a crash the old header might reference sectors that got reused in the meantime which the entry checksum
+ * detects, such entries are treated as missing.
+ * <p>
+ * Entries are read from a read-only memory mapping of the file, so a reader can consume an entry straight from the page
+ * cache. Writes still go through the channel which shares the page cache with the mapping. Entries appended past the
+ * mapping are read through the channel until the file outgrew the mapping by {@link #REMAP_THRESHOLD} bytes, so a
+ * growing file doesn't get remapped for every new entry.
+ */
+@NullMarked
+public class OrebfuscatorRegionFile implements AutoCloseable {
+
+  private static final int MAGIC = 0x4F464352; // OFCR
+  private static final int VERSION = 1;
+
+  static final int SECTOR_SIZE = 256;
+  private static final int CHUNK_COUNT = 32 * 32;
+
+  private static final int HEADER_BYTES = 4 + 4 + CHUNK_COUNT * 12 + 4;
+  static final int HEADER_SECTORS = sectorCount(HEADER_BYTES);
+
+  static final long REMAP_THRESHOLD = 1 << 20;
+
+  static int sectorCount(int length) {
+    return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+  }
+
+  private static int index(int chunkX, int chunkZ) {
+    return (chunkX & 31) | (chunkZ & 31) << 5;
+  }
+
+  private static int checksum(byte[] data, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(data, offset, length);
+    return (int) crc.getValue();
+  }
+
+  private static int checksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    return (int) crc.getValue();
+  }
+
+  private final Path path;
+  private final FileChannel channel;
+
+  private final int[] offsets = new int[CHUNK_COUNT];
+  private final int[] lengths = new int[CHUNK_COUNT];
+  private final int[] checksums = new int[CHUNK_COUNT];
+
+  private final BitSet usedSectors = new BitSet();
+
+  private boolean dirty = false;
+
+  // mapping of the whole file at the time it got created, remapped once the file outgrew it by REMAP_THRESHOLD
+  private @Nullable MappedByteBuffer mappedBuffer;
+
+  public OrebfuscatorRegionFile(Path path) throws IOException {
+    this.path = path;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+
+    try {
+      this.usedSectors.set(0, HEADER_SECTORS);
+
+      if (!this.readHeader()) {
+        if (this.channel.size() > 0) {
+          OfcLogger.debug("Resetting invalid cache region file: " + path);
+        }
+
+        this.channel.truncate(0);
+        this.dirty = true;
+        this.flush();
+      }
+    } catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  private boolean readHeader() throws IOException {
+    long fileSize = this.channel.size();
+    if (fileSize < HEADER_BYTES) {
+      return false;
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    this.readFully(header, 0);
+    header.flip();
+
+    int expectedChecksum = checksum(header.array(), 0, HEADER_BYTES - 4);
+    if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt(HEADER_BYTES - 4) != expectedChecksum) {
+      return false;
+    }
+
+    for (int index = 0; index < CHUNK_COUNT; index++) {
+      int offset = header.getInt();
+      int length = header.getInt();
+      int checksum = header.getInt();
+
+      if (offset == 0) {
+        continue;
+      }
+
+      int sectors = sectorCount(length);
+      boolean isValid = offset >= HEADER_SECTORS && length > 0
+          && (long) offset * SECTOR_SIZE + length <= fileSize
+          && this.isFree(offset, sectors);
+
+      if (isValid) {
+        this.offsets[index] = offset;
+        this.lengths[index] = length;
+        this.checksums[index] = checksum;
+        this.usedSectors.set(offset, offset + sectors);
+      } else {
+        // drop entries pointing outside the file or overlapping other entries
+        this.dirty = true;
+      }
+    }
+
+    return true;
+  }
+
+  private void writeHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    header.putInt(MAGIC);
+    header.putInt(VERSION);
+
+    for (int index = 0; index < CHUNK_COUNT; index++) {
+      header.putInt(this.offsets[index]);
+      header.putInt(this.lengths[index]);
+      header.putInt(this.checksums[index]);
+    }
+
+    header.putInt(checksum(header.array(), 0, HEADER_BYTES - 4));
+    header.flip();
+
+    this.writeFully(header, 0);
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Returns the entry for the given chunk or {@code null} if it isn't present or its checksum doesn't match.
+   */
+  public byte @Nullable [] read(int chunkX, int chunkZ) throws IOException {
+    return this.read(chunkX, chunkZ, buffer -> {
+      byte[] data = new byte[buffer.remaining()];
+      buffer.get(data);
+      return data;
+    });
+  }
+
+  /**
+   * Passes the entry for the given chunk to the reader and returns its result or {@code null} if the entry isn't
+   * present or its checksum doesn't match. The buffer is backed by the file mapping and must not escape the reader.
+   */
+  public synchronized <R> @Nullable R read(int chunkX, int chunkZ, EntryReader<R> reader) throws IOException {
+    int index = index(chunkX, chunkZ);
+
+    int offset = this.offsets[index];
+    if (offset == 0) {
+      return null;
+    }
+
+    ByteBuffer data = this.map((long) offset * SECTOR_SIZE, this.lengths[index]);
+
+    if (checksum(data) != this.checksums[index]) {
+      OfcLogger.debug("Dropping cache entry with invalid checksum in: " + path);
+      this.free(index);
+      return null;
+    }
+
+    return reader.read(data);
+  }
+
+  private ByteBuffer map(long position, int length) throws IOException {
+    long end = position + length;
+    if (this.mappedBuffer == null || this.mappedBuffer.capacity() < end) {
+      long fileSize = this.channel.size();
+      boolean outgrown = this.mappedBuffer == null || fileSize - this.mappedBuffer.capacity() >= REMAP_THRESHOLD;
+
+      // read small tails through the channel, same for files too big for one buffer which never happens in practice
+      if (!outgrown || fileSize > Integer.MAX_VALUE) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        this.readFully(buffer, position);
+        return buffer.flip();
+      }
+
+      this.unmap();
+      this.mappedBuffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+    }
+
+    return this.mappedBuffer.slice((int) position, length);
+  }
+
+  synchronized long mappedSize() {
+    return this.mappedBuffer != null ? this.mappedBuffer.capacity() : 0;
+  }
+
+  private void unmap() {
+    if (this.mappedBuffer != null) {
+      // release the mapping right away instead of waiting for the GC, otherwise the file
+      // can't be truncated or deleted on some platforms
+      PlatformDependent.freeDirectBuffer(this.mappedBuffer);
+      this.mappedBuffer = null;
+    }
+  }
+
+  public synchronized void write(int chunkX, int chunkZ, byte[] data, int length) throws IOException {
+    if (length <= 0) {
+      throw new IllegalArgumentException("length has to be positive: " + length);
+    }
+
+    int index = index(chunkX, chunkZ);
+
+    // allocate before freeing the previous entry so that old data stays intact until the next header write
+    int sectors = sectorCount(length);
+    int offset = this.allocate(sectors);
+    this.writeFully(ByteBuffer.wrap(data, 0, length), (long) offset * SECTOR_SIZE);
+
+    this.free(index);
+
+    this.offsets[index] = offset;
+    this.lengths[index] = length;
+    this.checksums[index] = checksum(data, 0, length);
+    this.dirty = true;
+  }
+
+  private boolean isFree(int offset, int sectors) {
+    int nextUsedSector = this.usedSectors.nextSetBit(offset);
+    return nextUsedSector == -1 || nextUsedSector >= offset + sectors;
+  }
+
+  private int allocate(int sectors) {
+    int start = this.usedSectors.nextClearBit(HEADER_SECTORS);
+    while (true) {
+      int end = this.usedSectors.nextSetBit(start);
+      if (end == -1 || end - start >= sectors) {
+        this.usedSectors.set(start, start + sectors);
+        return start;
+      }
+      start = this.usedSectors.nextClearBit(end);
+    }
+  }
+
+  private void free(int index) {
+    int offset = this.offsets[index];
+    if (offset != 0) {
+      this.usedSectors.clear(offset, offset + sectorCount(this.lengths[index]));
+
+      this.offsets[index] = 0;
+      this.lengths[index] = 0;
+      this.checksums[index] = 0;
+      this.dirty = true;
+    }
+  }
+
+  public synchronized void flush() throws IOException {
+    if (this.dirty) {
+      this.writeHeader();
+      this.dirty = false;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      this.flush();
+      this.unmap();
+
+      // trim free sectors at the end of the file
+      long usedBytes = (long) this.usedSectors.length() * SECTOR_SIZE;
+      if (this.channel.size() > usedBytes) {
+        this.channel.truncate(usedBytes);
+      }
+    } finally {
+      this.unmap();
+      this.channel.close();
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = this.channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of file: " + path);
+      }
+      position += read;
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += this.channel.write(buffer, position);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * Region file cache using {@link OrebfuscatorRegionFile} which doesn't depend on the server implementation.
+ */
+@NullMarked
+public class OrebfuscatorRegionFileCache extends AbstractRegionFileCache<OrebfuscatorRegionFile> {
+
+  public OrebfuscatorRegionFileCache(CacheConfig cacheConfig) {
+    super(cacheConfig);
+  }
+
+  @Override
+  protected OrebfuscatorRegionFile createRegionFile(Path path) throws IOException {
+    return new OrebfuscatorRegionFile(path);
+  }
+
+  @Override
+  protected void closeRegionFile(OrebfuscatorRegionFile t) throws IOException {
+    t.close();
+  }
+
+  @Override
+  protected void flushRegionFile(OrebfuscatorRegionFile t) throws IOException {
+    t.flush();
+  }
+
+  @Override
+  protected @Nullable DataInputStream createInputStream(OrebfuscatorRegionFile t, ChunkCacheKey key)
+      throws IOException {
+    byte[] data = t.read(key.x(), key.z());
+    return data != null ? new DataInputStream(new ByteArrayInputStream(data)) : null;
+  }
+
+  @Override
+  protected <R> @Nullable R read(OrebfuscatorRegionFile t, ChunkCacheKey key, EntryReader<R> reader)
+      throws IOException {
+    return t.read(key.x(), key.z(), reader);
+  }
+
+  @Override
+  protected DataOutputStream createOutputStream(OrebfuscatorRegionFile t, ChunkCacheKey key) throws IOException {
+    return new DataOutputStream(new ChunkBuffer(t, key));
+  }
+
+  private static class ChunkBuffer extends ByteArrayOutputStream {
+
+    private final OrebfuscatorRegionFile regionFile;
+    private final ChunkCacheKey key;
+
+    public ChunkBuffer(OrebfuscatorRegionFile regionFile, ChunkCacheKey key) {
+      super(8192);
+      this.regionFile = regionFile;
+      this.key = key;
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.regionFile.write(this.key.x(), this.key.z(), this.buf, this.count);
+    }
+  }
+}
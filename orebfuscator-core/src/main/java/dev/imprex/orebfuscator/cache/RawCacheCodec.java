@@ -0,0 +1,39 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.io.IOException;
+import org.jspecify.annotations.NullMarked;
+
+@NullMarked
+class RawCacheCodec implements CacheCodec {
+
+  private final int id;
+
+  RawCacheCodec(int id) {
+    this.id = id;
+  }
+
+  @Override
+  public int id() {
+    return this.id;
+  }
+
+  @Override
+  public int maxCompressedLength(int length) {
+    return length;
+  }
+
+  @Override
+  public int compress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset) {
+    System.arraycopy(src, srcOffset, dest, destOffset, srcLength);
+    return srcLength;
+  }
+
+  @Override
+  public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset, int destLength)
+      throws IOException {
+    if (srcLength != destLength) {
+      throw new IOException("Length mismatch: " + srcLength + " != " + destLength);
+    }
+    System.arraycopy(src, srcOffset, dest, destOffset, srcLength);
+  }
+}
@@ -0,0 +1,439 @@
+package dev.imprex.orebfuscator.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.statistics.CacheStatistics;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+/**
+ * Memory cache bounded by the estimated size of its entries using the W-TinyLFU policy. New entries enter a small LRU
+ * window and only get admitted into the main space if they were requested more often than the entry they would
+ * replace. This way a burst of chunks that are only requested once, like a player flying through fresh terrain, can't
+ * flush frequently requested chunks out of the cache.
+ * <p>
+ * The cache is split into independently locked segments by key hash, each with its own frequency sketch and a share of
+ * the maximum weight. The configured maximum size only serves as an estimate for the number of entries.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+@NullMarked
+public class TinyLfuMemoryCache implements MemoryCache {
+
+  private static final int MAXIMUM_SEGMENTS = 16;
+  private static final long MINIMUM_SEGMENT_WEIGHT = 1L << 20;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final int[] EVICTION_ORDER = { PROBATION, PROTECTED, WINDOW };
+
+  private static int hash(ChunkCacheKey key) {
+    // the record's hash code collides for neighboring chunks like (x + 1, z - 31), which would
+    // let them share frequency counters, so mix the coordinates with a 64-bit multiplier instead
+    long hash = key.world().hashCode();
+    hash = hash * 0x9E3779B97F4A7C15L + key.x();
+    hash = hash * 0x9E3779B97F4A7C15L + key.z();
+    hash *= 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  private final CacheStatistics statistics;
+  private final Consumer<ChunkCacheEntry> evictionListener;
+
+  private final long expireAfterAccess;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  public TinyLfuMemoryCache(CacheConfig cacheConfig, CacheStatistics statistics,
+      Consumer<ChunkCacheEntry> evictionListener) {
+    this.statistics = statistics;
+    this.evictionListener = evictionListener;
+
+    this.expireAfterAccess = TimeUnit.MILLISECONDS.toNanos(cacheConfig.expireAfterAccess());
+
+    // small caches use fewer segments so that a single entry never exceeds a segment's budget
+    long maximumWeight = cacheConfig.maximumBytes();
+    int segmentCount = MAXIMUM_SEGMENTS;
+    while (segmentCount > 1 && maximumWeight / segmentCount < MINIMUM_SEGMENT_WEIGHT) {
+      segmentCount >>= 1;
+    }
+
+    this.segments = new Segment[segmentCount];
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment(maximumWeight / segmentCount, cacheConfig.maximumSize() / segmentCount);
+    }
+  }
+
+  private Segment segment(int hash) {
+    // use the upper bits, the sketch and hash map already depend on the lower ones
+    return this.segmentShift == 32 ? this.segments[0] : this.segments[hash >>> this.segmentShift];
+  }
+
+  private void notifyEvicted(List<ChunkCacheEntry> evicted) {
+    for (ChunkCacheEntry entry : evicted) {
+      this.evictionListener.accept(entry);
+    }
+  }
+
+  @Override
+  public @Nullable ChunkCacheEntry get(ChunkCacheKey key) {
+    int hash = hash(key);
+    List<ChunkCacheEntry> evicted = new ArrayList<>(0);
+
+    ChunkCacheEntry entry = this.segment(hash).get(key, hash, System.nanoTime(), evicted);
+
+    this.notifyEvicted(evicted);
+    return entry;
+  }
+
+  @Override
+  public void put(ChunkCacheEntry entry) {
+    int hash = hash(entry.key());
+    List<ChunkCacheEntry> evicted = new ArrayList<>(0);
+
+    this.segment(hash).put(entry, hash, System.nanoTime(), evicted);
+
+    this.notifyEvicted(evicted);
+  }
+
+  @Override
+  public void invalidate(ChunkCacheKey key) {
+    this.segment(hash(key)).invalidate(key);
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (Segment segment : this.segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  @Override
+  public void drain(Consumer<ChunkCacheEntry> consumer) {
+    List<DrainedEntry> entries = new ArrayList<>();
+    for (Segment segment : this.segments) {
+      segment.drain(entries);
+    }
+
+    // most frequently used first, ties go to the most recently used entry
+    entries.sort(Comparator.comparingInt(DrainedEntry::frequency)
+        .thenComparingLong(DrainedEntry::accessTime)
+        .reversed());
+
+    for (DrainedEntry entry : entries) {
+      consumer.accept(entry.entry());
+    }
+  }
+
+  private class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<ChunkCacheKey, Node> nodes = new HashMap<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final AccessQueue[] queues = { new AccessQueue(), new AccessQueue(), new AccessQueue() };
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final long maximumProtectedWeight;
+
+    public Segment(long maximumWeight, int expectedSize) {
+      this.maximumWeight = maximumWeight;
+      // 1% window, 99% main space of which 80% are protected
+      this.maximumWindowWeight = Math.max(1, maximumWeight / 100);
+      this.maximumProtectedWeight = (maximumWeight - this.maximumWindowWeight) * 4 / 5;
+
+      // growing the sketch resets it, so start out with the expected size
+      this.sketch.ensureCapacity(expectedSize);
+    }
+
+    public @Nullable ChunkCacheEntry get(ChunkCacheKey key, int hash, long now, List<ChunkCacheEntry> evicted) {
+      this.lock.lock();
+      try {
+        this.sketch.increment(hash);
+
+        Node node = this.nodes.get(key);
+        if (node == null) {
+          return null;
+        } else if (now - node.accessTime > expireAfterAccess) {
+          this.remove(node);
+          evicted.add(node.entry);
+          return null;
+        }
+
+        node.accessTime = now;
+        this.onAccess(node);
+
+        return node.entry;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    public void put(ChunkCacheEntry entry, int hash, long now, List<ChunkCacheEntry> evicted) {
+      int weight = entry.estimatedSize();
+
+      this.lock.lock();
+      try {
+        this.sketch.increment(hash);
+
+        Node node = this.nodes.get(entry.key());
+        if (node != null) {
+          AccessQueue queue = this.queues[node.queue];
+          queue.weight += weight - node.weight;
+          statistics.onCacheSizeChange(weight - node.weight);
+
+          node.entry = entry;
+          node.weight = weight;
+          node.accessTime = now;
+          this.onAccess(node);
+        } else {
+          node = new Node(entry, hash, weight, now);
+          this.nodes.put(entry.key(), node);
+          this.queues[WINDOW].addLast(node);
+          statistics.onCacheSizeChange(weight);
+
+          if (this.nodes.size() > this.sketch.capacity()) {
+            this.sketch.ensureCapacity(this.nodes.size() * 2);
+          }
+        }
+
+        this.expire(now, evicted);
+        this.evict(evicted);
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    public void invalidate(ChunkCacheKey key) {
+      this.lock.lock();
+      try {
+        Node node = this.nodes.get(key);
+        if (node != null) {
+          this.remove(node);
+        }
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    public int size() {
+      this.lock.lock();
+      try {
+        return this.nodes.size();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    public void drain(List<DrainedEntry> entries) {
+      this.lock.lock();
+      try {
+        for (Node node : this.nodes.values()) {
+          entries.add(new DrainedEntry(node.entry, this.sketch.frequency(node.hash), node.accessTime));
+          statistics.onCacheSizeChange(-node.weight);
+        }
+
+        this.nodes.clear();
+        for (AccessQueue queue : this.queues) {
+          queue.clear();
+        }
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    private void onAccess(Node node) {
+      AccessQueue queue = this.queues[node.queue];
+      if (node.queue != PROBATION) {
+        queue.moveToLast(node);
+        return;
+      }
+
+      // second access in the main space promotes the entry to the protected space
+      queue.remove(node);
+      node.queue = PROTECTED;
+      this.queues[PROTECTED].addLast(node);
+
+      // demote the least recently used protected entries in turn
+      AccessQueue protectedQueue = this.queues[PROTECTED];
+      while (protectedQueue.weight > this.maximumProtectedWeight && protectedQueue.first != node) {
+        Node demoted = protectedQueue.first;
+        protectedQueue.remove(demoted);
+        demoted.queue = PROBATION;
+        this.queues[PROBATION].addLast(demoted);
+      }
+    }
+
+    private void expire(long now, List<ChunkCacheEntry> evicted) {
+      // queues are ordered by access time apart from entries moved between them, so this is best effort
+      // and entries that slip through expire on their next access or get evicted by weight
+      for (AccessQueue queue : this.queues) {
+        while (queue.first != null && now - queue.first.accessTime > expireAfterAccess) {
+          Node node = queue.first;
+          this.remove(node);
+          evicted.add(node.entry);
+        }
+      }
+    }
+
+    private void evict(List<ChunkCacheEntry> evicted) {
+      AccessQueue window = this.queues[WINDOW];
+      AccessQueue probation = this.queues[PROBATION];
+
+      // entries leaving the window become candidates at the end of the probation queue
+      @Nullable Node firstCandidate = null;
+      while (window.weight > this.maximumWindowWeight && window.first != null) {
+        Node node = window.first;
+        window.remove(node);
+        node.queue = PROBATION;
+        probation.addLast(node);
+
+        if (firstCandidate == null) {
+          firstCandidate = node;
+        }
+      }
+
+      while (this.weight() > this.maximumWeight) {
+        Node candidate = firstCandidate;
+        Node victim = this.victim(candidate);
+
+        if (candidate == null) {
+          this.evict(Objects.requireNonNull(victim), evicted);
+          continue;
+        }
+
+        firstCandidate = candidate.next;
+
+        // admit the candidate only if it is more popular than the entry it would replace
+        if (victim != null && this.sketch.frequency(candidate.hash) > this.sketch.frequency(victim.hash)) {
+          this.evict(victim, evicted);
+        } else {
+          this.evict(candidate, evicted);
+        }
+      }
+    }
+
+    private long weight() {
+      return this.queues[WINDOW].weight + this.queues[PROBATION].weight + this.queues[PROTECTED].weight;
+    }
+
+    /**
+     * Returns the least recently used entry that isn't a candidate, candidates always form the end of the probation
+     * queue.
+     */
+    private @Nullable Node victim(@Nullable Node candidate) {
+      for (int queue : EVICTION_ORDER) {
+        Node first = this.queues[queue].first;
+        if (first != null && first != candidate) {
+          return first;
+        }
+      }
+      return null;
+    }
+
+    private void evict(Node node, List<ChunkCacheEntry> evicted) {
+      this.remove(node);
+      evicted.add(node.entry);
+    }
+
+    private void remove(Node node) {
+      this.nodes.remove(node.entry.key());
+      this.queues[node.queue].remove(node);
+      statistics.onCacheSizeChange(-node.weight);
+    }
+  }
+
+  private record DrainedEntry(ChunkCacheEntry entry, int frequency, long accessTime) {
+  }
+
+  private static class Node {
+
+    private ChunkCacheEntry entry;
+    private final int hash;
+    private int weight;
+    private long accessTime;
+
+    private int queue = WINDOW;
+    private @Nullable Node previous;
+    private @Nullable Node next;
+
+    public Node(ChunkCacheEntry entry, int hash, int weight, long accessTime) {
+      this.entry = entry;
+      this.hash = hash;
+      this.weight = weight;
+      this.accessTime = accessTime;
+    }
+  }
+
+  /**
+   * Intrusive doubly linked list of nodes ordered from least to most recently used.
+   */
+  private static class AccessQueue {
+
+    private @Nullable Node first;
+    private @Nullable Node last;
+    private long weight;
+
+    public void addLast(Node node) {
+      node.previous = this.last;
+      node.next = null;
+
+      if (this.last != null) {
+        this.last.next = node;
+      } else {
+        this.first = node;
+      }
+
+      this.last = node;
+      this.weight += node.weight;
+    }
+
+    public void remove(Node node) {
+      if (node.previous != null) {
+        node.previous.next = node.next;
+      } else {
+        this.first = node.next;
+      }
+
+      if (node.next != null) {
+        node.next.previous = node.previous;
+      } else {
+        this.last = node.previous;
+      }
+
+      node.previous = null;
+      node.next = null;
+      this.weight -= node.weight;
+    }
+
+    public void moveToLast(Node node) {
+      if (this.last != node) {
+        this.remove(node);
+        this.addLast(node);
+      }
+    }
+
+    public void clear() {
+      this.first = null;
+      this.last = null;
+      this.weight = 0;
+    }
+  }
+}
@@ -1,10 +1,10 @@
 package dev.imprex.orebfuscator.chunk;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.function.IntPredicate;
 import dev.imprex.orebfuscator.interop.WorldAccessor;
 import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
 public class Chunk implements AutoCloseable {
@@ -18,9 +18,8 @@ public class Chunk implements AutoCloseable {
   private final ChunkSectionHolder[] sections;
 
   private final ByteBuf inputBuffer;
-  private final ByteBuf outputBuffer;
 
-  Chunk(ChunkFactory factory, ObfuscationRequest request) {
+  Chunk(ChunkFactory factory, ObfuscationRequest request, int[][] sectionBuffers) {
     this.factory = factory;
 
     final var packet = request.packet();
@@ -32,11 +31,16 @@ public class Chunk implements AutoCloseable {
 
     byte[] data = packet.data();
     this.inputBuffer = Unpooled.wrappedBuffer(data);
-    this.outputBuffer = PooledByteBufAllocator.DEFAULT.heapBuffer(data.length);
 
     for (int sectionIndex = 0; sectionIndex < this.sections.length; sectionIndex++) {
       if (packet.isSectionPresent(sectionIndex)) {
-        this.sections[sectionIndex] = new ChunkSectionHolder();
+        int[] buffer;
+        if (sectionBuffers == null) {
+          buffer = new int[4096];
+        } else if ((buffer = sectionBuffers[sectionIndex]) == null) {
+          buffer = sectionBuffers[sectionIndex] = new int[4096];
+        }
+        this.sections[sectionIndex] = new ChunkSectionHolder(buffer);
       }
     }
   }
@@ -52,7 +56,41 @@ public class Chunk implements AutoCloseable {
   public ChunkSection getSection(int index) {
     ChunkSectionHolder chunkSection = this.sections[index];
     if (chunkSection != null) {
-      return chunkSection.chunkSection;
+      return chunkSection.chunkSection();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the block states of the given section as they were before any modification or {@code null} if the section
+   * isn't present. Indices are the same as for {@link ChunkSection#getBlockState(int)}.
+   */
+  public int[] getSectionData(int index) {
+    ChunkSectionHolder chunkSection = this.sections[index];
+    if (chunkSection != null) {
+      return chunkSection.data();
+    }
+    return null;
+  }
+
+  /**
+   * Returns {@code false} if the given section isn't present or its palette can't contain any block state matching the
+   * given predicate. Only the palette gets read, so sections that are never accessed otherwise don't get decoded.
+   */
+  public boolean mayContain(int index, IntPredicate predicate) {
+    ChunkSectionHolder chunkSection = this.sections[index];
+    return chunkSection != null && chunkSection.mayContain(predicate);
+  }
+
+  /**
+   * Returns a read only view of the encoded block states of the given section as they were received or {@code null} if
+   * the section isn't present.
+   */
+  public ByteBuffer getSectionBytes(int index) {
+    ChunkSectionHolder chunkSection = this.sections[index];
+    if (chunkSection != null) {
+      return this.inputBuffer.nioBuffer(chunkSection.offset, chunkSection.extraOffset - chunkSection.offset)
+          .asReadOnlyBuffer();
     }
     return null;
   }
@@ -61,7 +99,7 @@ public class Chunk implements AutoCloseable {
     if (x >> 4 == this.chunkX && z >> 4 == this.chunkZ) {
       ChunkSectionHolder chunkSection = this.sections[this.worldAccessor.sectionIndex(y)];
       if (chunkSection != null) {
-        return chunkSection.data[ChunkSection.positionToIndex(x & 0xF, y & 0xF, z & 0xF)];
+        return chunkSection.data()[ChunkSection.positionToIndex(x & 0xF, y & 0xF, z & 0xF)];
       }
       return 0;
     }
@@ -69,24 +107,70 @@ public class Chunk implements AutoCloseable {
     return -1;
   }
 
+  /**
+   * Encodes the chunk into a new array. The exact output size is computed up front so that sections get written
+   * straight into the returned array without any intermediate buffer.
+   */
   public byte[] finalizeOutput() {
+    // everything after the last section gets copied as is
+    int size = this.inputBuffer.readableBytes();
     for (ChunkSectionHolder chunkSection : this.sections) {
       if (chunkSection != null) {
-        chunkSection.write();
+        chunkSection.compact();
+        size += chunkSection.getSerializedSize();
       }
     }
 
-    this.outputBuffer.writeBytes(this.inputBuffer);
+    byte[] output = new byte[size];
+    ByteBuf outputBuffer = Unpooled.wrappedBuffer(output).writerIndex(0);
 
-    return Arrays.copyOfRange(
-        this.outputBuffer.array(), this.outputBuffer.arrayOffset(),
-        this.outputBuffer.arrayOffset() + this.outputBuffer.readableBytes());
+    for (ChunkSectionHolder chunkSection : this.sections) {
+      if (chunkSection != null) {
+        chunkSection.write(outputBuffer);
+      }
+    }
+
+    outputBuffer.writeBytes(this.inputBuffer, this.inputBuffer.readerIndex(), this.inputBuffer.readableBytes());
+
+    if (outputBuffer.writerIndex() != size) {
+      throw new IllegalStateException("chunk output size mismatch " + outputBuffer.writerIndex() + " " + size);
+    }
+
+    return output;
   }
 
   @Override
   public void close() {
     this.inputBuffer.release();
-    this.outputBuffer.release();
+  }
+
+  private void skipBlockPalettedContainer() {
+    this.inputBuffer.skipBytes(factory.versionFlags().hasFluidCount() ? 4 : 2);
+
+    // same bits per block adjustments as ChunkSection#setBitsPerBlock
+    int bitsPerBlock = this.inputBuffer.readUnsignedByte();
+    if (factory.versionFlags().hasSingleValuePalette() && bitsPerBlock == 0) {
+      ByteBufUtil.readVarInt(this.inputBuffer);
+    } else if (bitsPerBlock <= 8) {
+      for (int i = ByteBufUtil.readVarInt(this.inputBuffer); i > 0; i--) {
+        ByteBufUtil.readVarInt(this.inputBuffer);
+      }
+      bitsPerBlock = bitsPerBlock == 1 ? 1 : Math.max(4, bitsPerBlock);
+    } else {
+      bitsPerBlock = factory.registryAccessor().getMaxBitsPerBlockState();
+    }
+
+    int expectedDataLength = SimpleVarBitBuffer.calculateArraySize(bitsPerBlock, 4096);
+
+    if (factory.versionFlags().hasLongArrayLengthField()) {
+      int dataLength = ByteBufUtil.readVarInt(this.inputBuffer);
+      if (expectedDataLength != dataLength) {
+        throw new IndexOutOfBoundsException(
+            "data.length != VarBitBuffer::size " + dataLength + " " + expectedDataLength);
+      }
+    }
+
+    this.inputBuffer.skipBytes(Long.BYTES * expectedDataLength);
   }
 
   private void skipBiomePalettedContainer() {
@@ -113,19 +197,26 @@ public class Chunk implements AutoCloseable {
     this.inputBuffer.skipBytes(Long.BYTES * expectedDataLength);
   }
 
+  /**
+   * Sections only get decoded once they are accessed, all others are skipped over and copied to the output as is.
+   */
   private class ChunkSectionHolder {
 
-    public final ChunkSection chunkSection;
+    private final int[] buffer;
 
-    public final int[] data;
+    public final int offset;
     public final int extraOffset;
 
     private int extraBytes;
 
-    public ChunkSectionHolder() {
-      this.chunkSection = new ChunkSection(factory);
+    private ChunkSection chunkSection;
+    private int[] data;
+
+    public ChunkSectionHolder(int[] buffer) {
+      this.buffer = buffer;
 
-      this.data = this.chunkSection.read(inputBuffer);
+      this.offset = inputBuffer.readerIndex();
+      skipBlockPalettedContainer();
       this.extraOffset = inputBuffer.readerIndex();
 
       if (factory.versionFlags().hasBiomePalettedContainer()) {
@@ -134,8 +225,56 @@ public class Chunk implements AutoCloseable {
       }
     }
 
-    public void write() {
-      this.chunkSection.write(outputBuffer);
+    private ChunkSection readPalettedContainer() {
+      if (this.chunkSection == null) {
+        ChunkSection chunkSection = new ChunkSection(factory);
+        chunkSection.readPalettedContainer(inputBuffer.slice(this.offset, this.extraOffset - this.offset));
+        this.chunkSection = chunkSection;
+      }
+      return this.chunkSection;
+    }
+
+    public boolean mayContain(IntPredicate predicate) {
+      return this.readPalettedContainer().mayContain(predicate);
+    }
+
+    public ChunkSection chunkSection() {
+      // decode before handing out the section so that data keeps the unmodified block states
+      this.data();
+      return this.chunkSection;
+    }
+
+    public int[] data() {
+      if (this.data == null) {
+        this.data = this.readPalettedContainer().decode(this.buffer);
+      }
+      return this.data;
+    }
+
+    private boolean isModified() {
+      return this.chunkSection != null && this.chunkSection.isModified();
+    }
+
+    public void compact() {
+      // unmodified sections get copied as is
+      if (this.isModified()) {
+        this.chunkSection.compact();
+      }
+    }
+
+    public int getSerializedSize() {
+      int size = this.isModified() ? this.chunkSection.getSerializedSize() : this.extraOffset - this.offset;
+      return size + this.extraBytes;
+    }
+
+    public void write(ByteBuf outputBuffer) {
+      if (this.isModified()) {
+        this.chunkSection.write(outputBuffer);
+      } else {
+        // copy unmodified sections as is instead of encoding them again
+        outputBuffer.writeBytes(inputBuffer, this.offset, this.extraOffset - this.offset);
+      }
+
       if (this.extraBytes > 0) {
         outputBuffer.writeBytes(inputBuffer, this.extraOffset, extraBytes);
       }
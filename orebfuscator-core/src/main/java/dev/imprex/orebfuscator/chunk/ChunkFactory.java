@@ -23,6 +23,18 @@ public class ChunkFactory {
   }
 
   public Chunk fromPacket(ObfuscationRequest request) {
-    return new Chunk(this, request);
+    return new Chunk(this, request, null);
+  }
+
+  /**
+   * Same as {@link #fromPacket(ObfuscationRequest)} but decodes each present section into the array at the same index
+   * of {@code sectionBuffers}. Missing entries get allocated and stored back so that the caller can reuse them for the
+   * next chunk. The returned chunk must not outlive the next call using the same buffers.
+   */
+  public Chunk fromPacket(ObfuscationRequest request, int[][] sectionBuffers) {
+    if (sectionBuffers.length < request.world().sectionCount()) {
+      throw new IllegalArgumentException("sectionBuffers.length < sectionCount: " + sectionBuffers.length);
+    }
+    return new Chunk(this, request, sectionBuffers);
   }
 }
@@ -1,5 +1,7 @@
 package dev.imprex.orebfuscator.chunk;
 
+import java.util.Arrays;
+import java.util.function.IntPredicate;
 import dev.imprex.orebfuscator.interop.RegistryAccessor;
 import io.netty.buffer.ByteBuf;
 
@@ -11,10 +13,13 @@ public class ChunkSection {
   private int blockCount;
   private int fluidCount;
   private int bitsPerBlock = -1;
+  private boolean modified = false;
 
   private Palette palette;
   private VarBitBuffer data;
 
+  private int[] expectedBlockStates = new int[0];
+
   public ChunkSection(ChunkFactory factory) {
     this.registryAccessor = factory.registryAccessor();
     this.versionFlags = factory.versionFlags();
@@ -52,20 +57,146 @@ public class ChunkSection {
     }
   }
 
+  /**
+   * Sets the block states that are likely to get written to this section. Once the palette overflows it grows to fit
+   * all of them at once instead of one bit at a time, since every grow has to re-encode all entries. Pre-sizing never
+   * goes beyond the largest indirect palette, only an actual overflow switches to the direct palette.
+   */
+  public void setExpectedBlockStates(int[] blockStates) {
+    this.expectedBlockStates = blockStates;
+  }
+
+  private int expectedBitsPerBlock(int blockId) {
+    if (this.expectedBlockStates.length == 0) {
+      return Math.min(8, this.bitsPerBlock + 1);
+    }
+
+    // grow only gets called once the palette is full and doesn't contain blockId, so canHold is a plain lookup
+    int size = 1 << this.bitsPerBlock;
+    boolean isExpected = false;
+
+    for (int blockState : this.expectedBlockStates) {
+      if (blockState == blockId) {
+        isExpected = true;
+      }
+      if (!this.palette.canHold(blockState)) {
+        size++;
+      }
+    }
+
+    if (!isExpected) {
+      size++;
+    }
+
+    // compact() can't shrink a direct palette again, so only grow into one once the palette really is full
+    return Math.min(8, 32 - Integer.numberOfLeadingZeros(size - 1));
+  }
+
   int grow(int bitsPerBlock, int blockId) {
     Palette palette = this.palette;
-    VarBitBuffer data = this.data;
+    int[] ids = new int[4096];
+    this.data.getAll(ids);
 
-    this.setBitsPerBlock(bitsPerBlock, true);
+    int[] newIds = new int[1 << this.bitsPerBlock];
+    Arrays.fill(newIds, -1);
+
+    this.setBitsPerBlock(Math.max(bitsPerBlock, this.expectedBitsPerBlock(blockId)), true);
 
-    for (int i = 0; i < data.size(); i++) {
-      int preBlockId = palette.valueFor(data.get(i));
-      this.data.set(i, this.palette.idFor(preBlockId));
+    for (int i = 0; i < ids.length; i++) {
+      int id = ids[i];
+      if (newIds[id] == -1) {
+        newIds[id] = this.palette.idFor(palette.valueFor(id));
+      }
+      ids[i] = newIds[id];
     }
 
+    this.data.setAll(ids);
+
     return this.palette.idFor(blockId);
   }
 
+  private int bitsPerBlockFor(int paletteSize) {
+    if (paletteSize == 1 && versionFlags.hasSingleValuePalette()) {
+      return 0;
+    }
+
+    // same rounding as setBitsPerBlock
+    int bitsPerBlock = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    if (bitsPerBlock <= 8) {
+      return Math.max(4, bitsPerBlock);
+    }
+    return registryAccessor.getMaxBitsPerBlockState();
+  }
+
+  /**
+   * Shrinks bits per block if the palette holds more entries than the section still references, uniform sections fall
+   * back to a single value palette. Block states stay the same, only their encoding changes.
+   */
+  public void compact() {
+    // single value palettes can't shrink and direct palettes don't track their entries
+    if (this.bitsPerBlock == 0 || this.bitsPerBlock > 8) {
+      return;
+    }
+
+    // the smallest indirect palette can only turn into a single value palette, skip the full scan unless uniform
+    if (this.bitsPerBlock <= 4 && (!versionFlags.hasSingleValuePalette() || !this.isUniform())) {
+      return;
+    }
+
+    int[] ids = new int[4096];
+    this.data.getAll(ids);
+
+    boolean[] used = new boolean[1 << this.bitsPerBlock];
+    for (int i = 0; i < ids.length; i++) {
+      used[ids[i]] = true;
+    }
+
+    int paletteSize = 0;
+    for (boolean isUsed : used) {
+      if (isUsed) {
+        paletteSize++;
+      }
+    }
+
+    // dropping unused entries at the same bits per block only saves a few bytes, not worth encoding all entries again
+    int bitsPerBlock = this.bitsPerBlockFor(paletteSize);
+    if (bitsPerBlock >= this.bitsPerBlock) {
+      return;
+    }
+
+    Palette palette = this.palette;
+    this.setBitsPerBlock(bitsPerBlock, true);
+
+    if (this.bitsPerBlock == 0) {
+      this.palette = new SingleValuePalette(this, palette.valueFor(ids[0]));
+      return;
+    }
+
+    // fill the new palette once per used id and remap the data afterwards
+    int[] newIds = new int[used.length];
+    for (int id = 0; id < used.length; id++) {
+      if (used[id]) {
+        newIds[id] = this.palette.idFor(palette.valueFor(id));
+      }
+    }
+
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = newIds[ids[i]];
+    }
+
+    this.data.setAll(ids);
+  }
+
+  private boolean isUniform() {
+    int id = this.data.get(0);
+    for (int i = 1; i < 4096; i++) {
+      if (this.data.get(i) != id) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   static int positionToIndex(int x, int y, int z) {
     return y << 8 | z << 4 | x;
   }
@@ -95,6 +226,7 @@ public class ChunkSection {
 
     int paletteIndex = this.palette.idFor(blockId);
     this.data.set(index, paletteIndex);
+    this.modified = true;
   }
 
   public int getBlock(int x, int y, int z) {
@@ -109,6 +241,28 @@ public class ChunkSection {
     return this.blockCount == 0;
   }
 
+  /**
+   * Returns {@code false} if no block state in this section can match the given predicate. This only inspects the
+   * palette, so a {@code true} result doesn't guarantee that a matching block is actually present.
+   */
+  public boolean mayContain(IntPredicate predicate) {
+    return this.palette.anyMatch(predicate);
+  }
+
+  /**
+   * Returns {@code true} if the given block state can be set without growing the palette.
+   */
+  public boolean canHoldWithoutGrowing(int blockId) {
+    return this.palette.canHold(blockId);
+  }
+
+  /**
+   * Returns {@code true} if any block state got set since this section was last read.
+   */
+  public boolean isModified() {
+    return this.modified;
+  }
+
   public void write(ByteBuf buffer) {
     buffer.writeShort(this.blockCount);
 
@@ -130,7 +284,36 @@ public class ChunkSection {
     }
   }
 
+  /**
+   * Returns the number of bytes {@link #write(ByteBuf)} would write.
+   */
+  public int getSerializedSize() {
+    int size = this.versionFlags.hasFluidCount() ? 5 : 3;
+    size += this.palette.getSerializedSize();
+
+    int dataLength = this.data.toArray().length;
+    if (versionFlags.hasLongArrayLengthField()) {
+      size += ByteBufUtil.getVarIntSize(dataLength);
+    }
+
+    return size + dataLength * Long.BYTES;
+  }
+
   public int[] read(ByteBuf buffer) {
+    return this.read(buffer, new int[4096]);
+  }
+
+  /**
+   * Reads the section from the given buffer and decodes all block states into the given array which has to hold at
+   * least 4096 entries.
+   */
+  public int[] read(ByteBuf buffer, int[] directData) {
+    this.readPalettedContainer(buffer);
+    return this.decode(directData);
+  }
+
+  void readPalettedContainer(ByteBuf buffer) {
+    this.modified = false;
     this.blockCount = buffer.readShort();
 
     if (this.versionFlags.hasFluidCount()) {
@@ -153,11 +336,15 @@ public class ChunkSection {
     for (int i = 0; i < data.length; i++) {
       data[i] = buffer.readLong();
     }
+  }
 
-    int[] directData = new int[4096];
-    for (int i = 0; i < directData.length; i++) {
-      directData[i] = this.getBlockState(i);
+  int[] decode(int[] directData) {
+    if (directData.length < 4096) {
+      throw new IllegalArgumentException("directData.length < 4096: " + directData.length);
     }
+
+    this.data.getAll(directData);
+    this.palette.valuesFor(directData, 4096);
     return directData;
   }
 }
@@ -1,5 +1,6 @@
 package dev.imprex.orebfuscator.chunk;
 
+import java.util.function.IntPredicate;
 import io.netty.buffer.ByteBuf;
 
 public class DirectPalette implements Palette {
@@ -14,6 +15,25 @@ public class DirectPalette implements Palette {
     return id;
   }
 
+  @Override
+  public void valuesFor(int[] ids, int length) {
+  }
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  @Override
+  public boolean anyMatch(IntPredicate predicate) {
+    return true;
+  }
+
+  @Override
+  public boolean canHold(int value) {
+    return true;
+  }
+
   @Override
   public void read(ByteBuf buffer) {
   }
@@ -21,4 +41,9 @@ public class DirectPalette implements Palette {
   @Override
   public void write(ByteBuf buffer) {
   }
+
+  @Override
+  public int getSerializedSize() {
+    return 0;
+  }
 }
@@ -1,37 +1,53 @@
 package dev.imprex.orebfuscator.chunk;
 
 import java.util.Arrays;
+import java.util.function.IntPredicate;
 import io.netty.buffer.ByteBuf;
 
 public class IndirectPalette implements Palette {
 
+  // palettes up to this capacity get searched linearly, bigger ones use a hash table
+  private static final int MAX_LINEAR_SCAN_CAPACITY = 16;
+
+  private static int hash(int value) {
+    int hash = value * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
   private final int bitsPerValue;
   private final ChunkSection chunkSection;
 
-  private final byte[] byValue;
   private final int[] byId;
 
+  // open addressing table sized to twice the palette capacity, each slot stores id + 1 or 0 if empty
+  private final int[] byValue;
+  private final int byValueMask;
+
   private int size = 0;
 
   public IndirectPalette(int bitsPerValue, ChunkSection chunkSection) {
     this.bitsPerValue = bitsPerValue;
     this.chunkSection = chunkSection;
 
-    // TODO improve block to index
-    this.byValue = new byte[chunkSection.registryAccessor().getUniqueBlockStateCount()];
-    Arrays.fill(this.byValue, (byte) 0xFF);
     this.byId = new int[1 << bitsPerValue];
+
+    if (this.byId.length > MAX_LINEAR_SCAN_CAPACITY) {
+      this.byValue = new int[this.byId.length << 1];
+      this.byValueMask = this.byValue.length - 1;
+    } else {
+      this.byValue = null;
+      this.byValueMask = 0;
+    }
   }
 
   @Override
   public int idFor(int value) {
-    int id = this.byValue[value] & 0xFF;
-    if (id == 0xFF) {
-      id = this.size++;
-
-      if (id != 0xFF && id < this.byId.length) {
-        this.byValue[value] = (byte) id;
+    int id = this.indexOf(value);
+    if (id == -1) {
+      if (this.size < this.byId.length) {
+        id = this.size++;
         this.byId[id] = value;
+        this.insert(value, id);
       } else {
         id = this.chunkSection.grow(this.bitsPerValue + 1, value);
       }
@@ -48,13 +64,88 @@ public class IndirectPalette implements Palette {
     }
   }
 
+  @Override
+  public void valuesFor(int[] ids, int length) {
+    int[] byId = this.byId;
+    int size = this.size;
+
+    for (int i = 0; i < length; i++) {
+      int id = ids[i];
+      if (id >= size) {
+        throw new IndexOutOfBoundsException();
+      }
+      ids[i] = byId[id];
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public boolean anyMatch(IntPredicate predicate) {
+    for (int id = 0; id < this.size; id++) {
+      if (predicate.test(this.byId[id])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean canHold(int value) {
+    return this.size < this.byId.length || this.indexOf(value) != -1;
+  }
+
+  private int indexOf(int value) {
+    if (this.byValue == null) {
+      for (int id = 0; id < this.size; id++) {
+        if (this.byId[id] == value) {
+          return id;
+        }
+      }
+      return -1;
+    }
+
+    for (int slot = hash(value) & this.byValueMask;; slot = (slot + 1) & this.byValueMask) {
+      int entry = this.byValue[slot];
+      if (entry == 0) {
+        return -1;
+      } else if (this.byId[entry - 1] == value) {
+        return entry - 1;
+      }
+    }
+  }
+
+  private void insert(int value, int id) {
+    if (this.byValue != null) {
+      int slot = hash(value) & this.byValueMask;
+      while (this.byValue[slot] != 0) {
+        slot = (slot + 1) & this.byValueMask;
+      }
+      this.byValue[slot] = id + 1;
+    }
+  }
+
   @Override
   public void read(ByteBuf buffer) {
-    this.size = ByteBufUtil.readVarInt(buffer);
-    for (int id = 0; id < size; id++) {
+    this.size = 0;
+    if (this.byValue != null) {
+      Arrays.fill(this.byValue, 0);
+    }
+
+    for (int i = ByteBufUtil.readVarInt(buffer); i > 0; i--) {
       int value = ByteBufUtil.readVarInt(buffer);
+      boolean isDuplicate = this.indexOf(value) != -1;
+
+      int id = this.size++;
       this.byId[id] = value;
-      this.byValue[value] = (byte) id;
+
+      // keep the first id for duplicate values
+      if (!isDuplicate) {
+        this.insert(value, id);
+      }
     }
   }
 
@@ -66,4 +157,15 @@ public class IndirectPalette implements Palette {
       ByteBufUtil.writeVarInt(buffer, this.valueFor(id));
     }
   }
+
+  @Override
+  public int getSerializedSize() {
+    int size = ByteBufUtil.getVarIntSize(this.size);
+
+    for (int id = 0; id < this.size; id++) {
+      size += ByteBufUtil.getVarIntSize(this.byId[id]);
+    }
+
+    return size;
+  }
 }
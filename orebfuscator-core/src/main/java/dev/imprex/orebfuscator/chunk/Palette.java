@@ -1,5 +1,6 @@
 package dev.imprex.orebfuscator.chunk;
 
+import java.util.function.IntPredicate;
 import io.netty.buffer.ByteBuf;
 
 public interface Palette {
@@ -8,8 +9,35 @@ public interface Palette {
 
   int valueFor(int id);
 
+  /**
+   * Replaces the first {@code length} ids in the given array with their values, same as calling
+   * {@link #valueFor(int)} for each of them.
+   */
+  void valuesFor(int[] ids, int length);
+
+  /**
+   * Returns the number of values stored in this palette, palettes that map values directly don't store any.
+   */
+  int size();
+
+  /**
+   * Returns {@code true} if any value in this palette matches the given predicate. Palettes that can't enumerate their
+   * values always return {@code true}.
+   */
+  boolean anyMatch(IntPredicate predicate);
+
+  /**
+   * Returns {@code true} if the given value is part of this palette or can be added without growing it.
+   */
+  boolean canHold(int value);
+
   void read(ByteBuf buffer);
 
   void write(ByteBuf buffer);
 
+  /**
+   * Returns the number of bytes {@link #write(ByteBuf)} would write.
+   */
+  int getSerializedSize();
+
 }
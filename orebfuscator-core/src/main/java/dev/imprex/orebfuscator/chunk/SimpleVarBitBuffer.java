@@ -35,6 +35,94 @@ public class SimpleVarBitBuffer implements VarBitBuffer {
         & ~(this.adjustmentMask << offset) | (value & this.adjustmentMask) << offset;
   }
 
+  public void getAll(int[] values) {
+    // every case passes a constant so that the JIT can specialize the inlined loop with constant shifts
+    switch (this.bitsPerEntry) {
+      case 1 -> unpack(this.buffer, values, this.size, 1);
+      case 2 -> unpack(this.buffer, values, this.size, 2);
+      case 3 -> unpack(this.buffer, values, this.size, 3);
+      case 4 -> unpack(this.buffer, values, this.size, 4);
+      case 5 -> unpack(this.buffer, values, this.size, 5);
+      case 6 -> unpack(this.buffer, values, this.size, 6);
+      case 7 -> unpack(this.buffer, values, this.size, 7);
+      case 8 -> unpack(this.buffer, values, this.size, 8);
+      case 9 -> unpack(this.buffer, values, this.size, 9);
+      case 10 -> unpack(this.buffer, values, this.size, 10);
+      case 11 -> unpack(this.buffer, values, this.size, 11);
+      case 12 -> unpack(this.buffer, values, this.size, 12);
+      case 13 -> unpack(this.buffer, values, this.size, 13);
+      case 14 -> unpack(this.buffer, values, this.size, 14);
+      case 15 -> unpack(this.buffer, values, this.size, 15);
+      default -> unpack(this.buffer, values, this.size, this.bitsPerEntry);
+    }
+  }
+
+  public void setAll(int[] values) {
+    switch (this.bitsPerEntry) {
+      case 1 -> pack(this.buffer, values, this.size, 1);
+      case 2 -> pack(this.buffer, values, this.size, 2);
+      case 3 -> pack(this.buffer, values, this.size, 3);
+      case 4 -> pack(this.buffer, values, this.size, 4);
+      case 5 -> pack(this.buffer, values, this.size, 5);
+      case 6 -> pack(this.buffer, values, this.size, 6);
+      case 7 -> pack(this.buffer, values, this.size, 7);
+      case 8 -> pack(this.buffer, values, this.size, 8);
+      case 9 -> pack(this.buffer, values, this.size, 9);
+      case 10 -> pack(this.buffer, values, this.size, 10);
+      case 11 -> pack(this.buffer, values, this.size, 11);
+      case 12 -> pack(this.buffer, values, this.size, 12);
+      case 13 -> pack(this.buffer, values, this.size, 13);
+      case 14 -> pack(this.buffer, values, this.size, 14);
+      case 15 -> pack(this.buffer, values, this.size, 15);
+      default -> pack(this.buffer, values, this.size, this.bitsPerEntry);
+    }
+  }
+
+  private static void unpack(long[] buffer, int[] values, int size, int bitsPerEntry) {
+    int entriesPerLong = 64 / bitsPerEntry;
+    long mask = (1L << bitsPerEntry) - 1L;
+
+    // full longs first so that the inner loop has a constant trip count
+    int fullLongs = size / entriesPerLong;
+    int index = 0;
+    for (int position = 0; position < fullLongs; position++, index += entriesPerLong) {
+      long entry = buffer[position];
+      for (int i = 0; i < entriesPerLong; i++) {
+        values[index + i] = (int) (entry >>> i * bitsPerEntry & mask);
+      }
+    }
+
+    if (index < size) {
+      long entry = buffer[fullLongs];
+      for (int i = 0; index < size; i++, index++) {
+        values[index] = (int) (entry >>> i * bitsPerEntry & mask);
+      }
+    }
+  }
+
+  private static void pack(long[] buffer, int[] values, int size, int bitsPerEntry) {
+    int entriesPerLong = 64 / bitsPerEntry;
+    long mask = (1L << bitsPerEntry) - 1L;
+
+    int fullLongs = size / entriesPerLong;
+    int index = 0;
+    for (int position = 0; position < fullLongs; position++, index += entriesPerLong) {
+      long entry = 0;
+      for (int i = 0; i < entriesPerLong; i++) {
+        entry |= (values[index + i] & mask) << i * bitsPerEntry;
+      }
+      buffer[position] = entry;
+    }
+
+    if (index < size) {
+      long entry = 0;
+      for (int i = 0; index < size; i++, index++) {
+        entry |= (values[index] & mask) << i * bitsPerEntry;
+      }
+      buffer[fullLongs] = entry;
+    }
+  }
+
   public long[] toArray() {
     return this.buffer;
   }
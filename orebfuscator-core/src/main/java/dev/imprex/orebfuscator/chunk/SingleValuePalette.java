@@ -1,5 +1,6 @@
 package dev.imprex.orebfuscator.chunk;
 
+import java.util.function.IntPredicate;
 import io.netty.buffer.ByteBuf;
 
 public class SingleValuePalette implements Palette {
@@ -32,6 +33,28 @@ public class SingleValuePalette implements Palette {
     }
   }
 
+  @Override
+  public void valuesFor(int[] ids, int length) {
+    for (int i = 0; i < length; i++) {
+      ids[i] = this.valueFor(ids[i]);
+    }
+  }
+
+  @Override
+  public int size() {
+    return this.value != -1 ? 1 : 0;
+  }
+
+  @Override
+  public boolean anyMatch(IntPredicate predicate) {
+    return this.value != -1 && predicate.test(this.value);
+  }
+
+  @Override
+  public boolean canHold(int value) {
+    return this.value == -1 || this.value == value;
+  }
+
   @Override
   public void read(ByteBuf buffer) {
     this.value = ByteBufUtil.readVarInt(buffer);
@@ -45,4 +68,13 @@ public class SingleValuePalette implements Palette {
       ByteBufUtil.writeVarInt(buffer, this.value);
     }
   }
+
+  @Override
+  public int getSerializedSize() {
+    if (this.value == -1) {
+      throw new IllegalStateException("value isn't initialized");
+    } else {
+      return ByteBufUtil.getVarIntSize(this.value);
+    }
+  }
 }
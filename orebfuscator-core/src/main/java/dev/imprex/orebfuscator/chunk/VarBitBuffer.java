@@ -6,6 +6,16 @@ public interface VarBitBuffer {
 
   void set(int index, int value);
 
+  /**
+   * Copies the first {@link #size()} values into the given array.
+   */
+  void getAll(int[] values);
+
+  /**
+   * Replaces all values with the first {@link #size()} values of the given array.
+   */
+  void setAll(int[] values);
+
   long[] toArray();
 
   int size();
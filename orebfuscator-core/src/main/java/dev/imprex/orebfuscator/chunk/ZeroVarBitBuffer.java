@@ -1,5 +1,7 @@
 package dev.imprex.orebfuscator.chunk;
 
+import java.util.Arrays;
+
 public record ZeroVarBitBuffer(int size) implements VarBitBuffer {
 
   public static final long[] EMPTY = new long[0];
@@ -16,6 +18,18 @@ public record ZeroVarBitBuffer(int size) implements VarBitBuffer {
     }
   }
 
+  @Override
+  public void getAll(int[] values) {
+    Arrays.fill(values, 0, this.size, 0);
+  }
+
+  @Override
+  public void setAll(int[] values) {
+    for (int i = 0; i < this.size; i++) {
+      this.set(i, values[i]);
+    }
+  }
+
   @Override
   public long[] toArray() {
     return EMPTY;
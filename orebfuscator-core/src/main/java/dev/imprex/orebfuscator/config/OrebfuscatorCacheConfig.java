@@ -7,7 +7,10 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
 
+import dev.imprex.orebfuscator.config.api.CacheCompression;
 import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.DiskCacheFormat;
+import dev.imprex.orebfuscator.config.api.MemoryCachePolicy;
 import dev.imprex.orebfuscator.config.context.ConfigMessage;
 import dev.imprex.orebfuscator.config.context.ConfigParsingContext;
 import dev.imprex.orebfuscator.config.yaml.ConfigurationSection;
@@ -22,14 +25,25 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
   private final Path worldDirectory;
 
   private boolean enabledValue = true;
+  private boolean reuseSections = true;
   private int maximumSize = 32768;
+  private long maximumBytes = 256L << 20;
   private long expireAfterAccess = TimeUnit.SECONDS.toMillis(60);
+  private boolean offHeap = false;
+  // configs from before the policy option existed keep their count bounded lru cache, new default configs select tinylfu
+  private MemoryCachePolicy memoryCachePolicy = MemoryCachePolicy.LRU;
+  private CacheCompression memoryCacheCompression = CacheCompression.LZ4;
+  private int memoryCacheSnapshotSize = 8192;
 
   private boolean enableDiskCacheValue = true;
+  // configs from before the native format existed keep using their .mca caches, new default configs select native
+  private DiskCacheFormat diskCacheFormat = DiskCacheFormat.VANILLA;
+  private CacheCompression diskCacheCompression = CacheCompression.LZ4;
   private Path baseDirectory;
   private int maximumOpenRegionFiles = 256;
   private long deleteRegionFilesAfterAccess = TimeUnit.DAYS.toMillis(2);
   private int maximumTaskQueueSize = 32768;
+  private int diskCacheThreads = 1;
 
   // feature enabled states after context evaluation
   private boolean enabled = false;
@@ -42,6 +56,7 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
 
   public void deserialize(ConfigurationSection section, ConfigParsingContext context) {
     this.enabledValue = section.getBoolean("enabled", true);
+    this.reuseSections = section.getBoolean("reuseSections", true);
 
     // parse memoryCache section
     ConfigParsingContext memoryContext = context.section("memoryCache");
@@ -50,8 +65,19 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
       this.maximumSize = memorySection.getInt("maximumSize", 32768);
       memoryContext.errorMinValue("maximumSize", 1, this.maximumSize);
 
+      this.maximumBytes = memorySection.getLong("maximumBytes", 256L << 20);
+      memoryContext.errorMinValue("maximumBytes", 1, this.maximumBytes);
+
       this.expireAfterAccess = memorySection.getLong("expireAfterAccess", TimeUnit.SECONDS.toMillis(60));
       memoryContext.errorMinValue("expireAfterAccess", 1, this.expireAfterAccess);
+
+      this.offHeap = memorySection.getBoolean("offHeap", false);
+      this.memoryCachePolicy = this.deserializeMemoryCachePolicy(memorySection, memoryContext,
+          MemoryCachePolicy.LRU);
+      this.memoryCacheCompression = this.deserializeCompression(memorySection, memoryContext, CacheCompression.LZ4);
+
+      this.memoryCacheSnapshotSize = memorySection.getInt("snapshotSize", 8192);
+      memoryContext.errorMinValue("snapshotSize", 0, this.memoryCacheSnapshotSize);
     } else {
       memoryContext.warn(ConfigMessage.MISSING_USING_DEFAULTS);
     }
@@ -61,6 +87,8 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
     ConfigurationSection diskSection = section.getSection("diskCache");
     if (diskSection != null) {
       this.enableDiskCacheValue = diskSection.getBoolean("enabled", true);
+      this.diskCacheFormat = this.deserializeDiskCacheFormat(diskSection, diskContext, DiskCacheFormat.VANILLA);
+      this.diskCacheCompression = this.deserializeCompression(diskSection, diskContext, CacheCompression.LZ4);
       this.baseDirectory = this.deserializeBaseDirectory(diskSection, diskContext, "orebfuscator_cache/");
 
       this.maximumOpenRegionFiles = diskSection.getInt("maximumOpenFiles", 256);
@@ -72,6 +100,9 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
 
       this.maximumTaskQueueSize = diskSection.getInt("maximumTaskQueueSize", 32768);
       diskContext.errorMinValue("maximumTaskQueueSize", 1, this.maximumTaskQueueSize);
+
+      this.diskCacheThreads = diskSection.getInt("threads", 1);
+      diskContext.errorMinValue("threads", 1, this.diskCacheThreads);
     } else {
       diskContext.warn(ConfigMessage.MISSING_USING_DEFAULTS);
     }
@@ -95,11 +126,19 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
 
   public void serialize(ConfigurationSection section) {
     section.set("enabled", this.enabledValue);
+    section.set("reuseSections", this.reuseSections);
 
     section.set("memoryCache.maximumSize", this.maximumSize);
+    section.set("memoryCache.maximumBytes", this.maximumBytes);
     section.set("memoryCache.expireAfterAccess", this.expireAfterAccess);
+    section.set("memoryCache.offHeap", this.offHeap);
+    section.set("memoryCache.policy", this.memoryCachePolicy.configName());
+    section.set("memoryCache.compression", this.memoryCacheCompression.configName());
+    section.set("memoryCache.snapshotSize", this.memoryCacheSnapshotSize);
 
     section.set("diskCache.enabled", this.enableDiskCacheValue);
+    section.set("diskCache.format", this.diskCacheFormat.configName());
+    section.set("diskCache.compression", this.diskCacheCompression.configName());
 
     String directoryString = this.worldDirectory.relativize(baseDirectory).toString();
     section.set("diskCache.directory", directoryString);
@@ -107,6 +146,47 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
     section.set("diskCache.maximumOpenFiles", this.maximumOpenRegionFiles);
     section.set("diskCache.deleteFilesAfterAccess", this.deleteRegionFilesAfterAccess);
     section.set("diskCache.maximumTaskQueueSize", this.maximumTaskQueueSize);
+    section.set("diskCache.threads", this.diskCacheThreads);
+  }
+
+  private MemoryCachePolicy deserializeMemoryCachePolicy(ConfigurationSection section, ConfigParsingContext context,
+      MemoryCachePolicy defaultPolicy) {
+    String policyName = section.getString("policy", defaultPolicy.configName());
+
+    MemoryCachePolicy policy = MemoryCachePolicy.fromName(policyName);
+    if (policy == null) {
+      context.warn("policy", ConfigMessage.CACHE_UNKNOWN_POLICY, policyName, defaultPolicy.configName());
+      return defaultPolicy;
+    }
+
+    return policy;
+  }
+
+  private DiskCacheFormat deserializeDiskCacheFormat(ConfigurationSection section, ConfigParsingContext context,
+      DiskCacheFormat defaultFormat) {
+    String formatName = section.getString("format", defaultFormat.configName());
+
+    DiskCacheFormat format = DiskCacheFormat.fromName(formatName);
+    if (format == null) {
+      context.warn("format", ConfigMessage.CACHE_UNKNOWN_FORMAT, formatName, defaultFormat.configName());
+      return defaultFormat;
+    }
+
+    return format;
+  }
+
+  private CacheCompression deserializeCompression(ConfigurationSection section, ConfigParsingContext context,
+      CacheCompression defaultCompression) {
+    String compressionName = section.getString("compression", defaultCompression.configName());
+
+    CacheCompression compression = CacheCompression.fromName(compressionName);
+    if (compression == null) {
+      context.warn("compression", ConfigMessage.CACHE_UNKNOWN_COMPRESSION, compressionName,
+          defaultCompression.configName());
+      return defaultCompression;
+    }
+
+    return compression;
   }
 
   private Path deserializeBaseDirectory(ConfigurationSection section, ConfigParsingContext context,
@@ -126,21 +206,61 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
     return this.enabled;
   }
 
+  @Override
+  public boolean reuseSections() {
+    return this.reuseSections;
+  }
+
   @Override
   public int maximumSize() {
     return this.maximumSize;
   }
 
+  @Override
+  public long maximumBytes() {
+    return this.maximumBytes;
+  }
+
   @Override
   public long expireAfterAccess() {
     return this.expireAfterAccess;
   }
 
+  @Override
+  public boolean offHeap() {
+    return this.offHeap;
+  }
+
+  @Override
+  public MemoryCachePolicy memoryCachePolicy() {
+    return this.memoryCachePolicy;
+  }
+
+  @Override
+  public CacheCompression memoryCacheCompression() {
+    return this.memoryCacheCompression;
+  }
+
+  @Override
+  public int memoryCacheSnapshotSize() {
+    return this.memoryCacheSnapshotSize;
+  }
+
   @Override
   public boolean enableDiskCache() {
     return this.enableDiskCache;
   }
 
+  @Override
+  public DiskCacheFormat diskCacheFormat() {
+    return this.diskCacheFormat;
+  }
+
+  @Override
+  public CacheCompression diskCacheCompression() {
+    return this.diskCacheCompression;
+  }
+
   @Override
   public Path baseDirectory() {
     return this.baseDirectory;
@@ -150,7 +270,7 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
   public Path regionFile(ChunkCacheKey key) {
     var separator = this.baseDirectory.getFileSystem().getSeparator();
     return this.baseDirectory.resolve(key.world().replace(":", separator))
-        .resolve("r." + (key.x() >> 5) + "." + (key.z() >> 5) + ".mca");
+        .resolve("r." + (key.x() >> 5) + "." + (key.z() >> 5) + this.diskCacheFormat.fileExtension());
   }
 
   @Override
@@ -167,4 +287,9 @@ public class OrebfuscatorCacheConfig implements CacheConfig {
   public int maximumTaskQueueSize() {
     return this.maximumTaskQueueSize;
   }
+
+  @Override
+  public int diskCacheThreads() {
+    return this.diskCacheThreads;
+  }
 }
@@ -7,9 +7,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -352,6 +354,7 @@ public class OrebfuscatorConfig implements Config {
     private final WorldAccessor world;
     private final WeightedRandom @Nullable [] obfuscationRandoms;
     private final WeightedRandom @Nullable [] proximityRandoms;
+    private final int[][] randomBlockStates;
 
     public OrebfuscatorWorldConfigBundle(WorldAccessor world) {
       String worldName = world.name();
@@ -378,6 +381,31 @@ public class OrebfuscatorConfig implements Config {
           ? this.obfuscationConfig.createWeightedRandoms(world) : null;
       this.proximityRandoms = proximityConfig != null && proximityConfig.isEnabled()
           ? this.proximityConfig.createWeightedRandoms(world) : null;
+
+      this.randomBlockStates = new int[world.sectionCount()][];
+      for (int sectionIndex = 0; sectionIndex < this.randomBlockStates.length; sectionIndex++) {
+        this.randomBlockStates[sectionIndex] = this.collectRandomBlockStates(sectionIndex);
+      }
+    }
+
+    private int[] collectRandomBlockStates(int sectionIndex) {
+      Set<Integer> blockStates = new HashSet<>();
+
+      int minIndex = sectionIndex << 4;
+      for (int index = minIndex; index < minIndex + 16; index++) {
+        if (this.obfuscationRandoms != null) {
+          for (int blockState : this.obfuscationRandoms[index].values()) {
+            blockStates.add(blockState);
+          }
+        }
+        if (this.proximityRandoms != null) {
+          for (int blockState : this.proximityRandoms[index].values()) {
+            blockStates.add(blockState);
+          }
+        }
+      }
+
+      return blockStates.stream().mapToInt(Integer::intValue).toArray();
     }
 
     private <T extends AbstractWorldConfig> @Nullable T findConfig(Collection<T> configs, String worldName,
@@ -445,5 +473,10 @@ public class OrebfuscatorConfig implements Config {
       return this.proximityRandoms != null
           ? this.proximityRandoms[y - this.world.minBuildHeight()].next(random) : 0;
     }
+
+    @Override
+    public int[] randomBlockStates(int sectionIndex) {
+      return this.randomBlockStates[sectionIndex];
+    }
   }
 }
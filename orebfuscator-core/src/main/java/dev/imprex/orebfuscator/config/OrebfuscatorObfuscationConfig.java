@@ -16,6 +16,7 @@ import org.jspecify.annotations.NullMarked;
 public class OrebfuscatorObfuscationConfig extends AbstractWorldConfig implements ObfuscationConfig {
 
   private boolean layerObfuscation = false;
+  private boolean preferPaletteBlocks = false;
 
   private final Set<ConfigBlockValue> hiddenBlocks = new LinkedHashSet<>();
 
@@ -25,6 +26,7 @@ public class OrebfuscatorObfuscationConfig extends AbstractWorldConfig implement
     this.deserializeBase(section, context);
 
     this.layerObfuscation = section.getBoolean("layerObfuscation", false);
+    this.preferPaletteBlocks = section.getBoolean("preferPaletteBlocks", false);
 
     this.deserializeHiddenBlocks(blockParserFactory, section, context);
     this.deserializeRandomBlocks(blockParserFactory, section, context);
@@ -35,6 +37,7 @@ public class OrebfuscatorObfuscationConfig extends AbstractWorldConfig implement
     this.serializeBase(section);
 
     section.set("layerObfuscation", this.layerObfuscation);
+    section.set("preferPaletteBlocks", this.preferPaletteBlocks);
 
     this.serializeHiddenBlocks(section);
     this.serializeRandomBlocks(section);
@@ -78,6 +81,11 @@ public class OrebfuscatorObfuscationConfig extends AbstractWorldConfig implement
     return this.layerObfuscation;
   }
 
+  @Override
+  public boolean preferPaletteBlocks() {
+    return this.preferPaletteBlocks;
+  }
+
   @Override
   public Iterable<ConfigBlockValue> hiddenBlocks() {
     return this.hiddenBlocks;
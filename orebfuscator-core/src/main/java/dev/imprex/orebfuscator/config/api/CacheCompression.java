@@ -0,0 +1,49 @@
+package dev.imprex.orebfuscator.config.api;
+
+import java.util.Locale;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+@NullMarked
+public enum CacheCompression {
+
+  /**
+   * Stores entries uncompressed, fastest to read but largest
+   */
+  NONE("none"),
+
+  /**
+   * Fast LZ4 compression
+   */
+  LZ4("lz4"),
+
+  /**
+   * LZ4 high compression, slower to write but reads as fast as LZ4
+   */
+  LZ4_HC("lz4hc"),
+
+  /**
+   * Deflate compression, slowest but densest
+   */
+  DEFLATE("deflate");
+
+  public static @Nullable CacheCompression fromName(String name) {
+    String lowerCaseName = name.toLowerCase(Locale.ROOT);
+    for (CacheCompression compression : values()) {
+      if (compression.configName.equals(lowerCaseName)) {
+        return compression;
+      }
+    }
+    return null;
+  }
+
+  private final String configName;
+
+  CacheCompression(String configName) {
+    this.configName = configName;
+  }
+
+  public String configName() {
+    return configName;
+  }
+}
@@ -9,12 +9,28 @@ public interface CacheConfig {
 
   boolean enabled();
 
+  boolean reuseSections();
+
   int maximumSize();
 
+  long maximumBytes();
+
   long expireAfterAccess();
 
+  boolean offHeap();
+
+  MemoryCachePolicy memoryCachePolicy();
+
+  CacheCompression memoryCacheCompression();
+
+  int memoryCacheSnapshotSize();
+
   boolean enableDiskCache();
 
+  DiskCacheFormat diskCacheFormat();
+
+  CacheCompression diskCacheCompression();
+
   Path baseDirectory();
 
   Path regionFile(ChunkCacheKey chunkPosition);
@@ -24,4 +40,6 @@ public interface CacheConfig {
   long deleteRegionFilesAfterAccess();
 
   int maximumTaskQueueSize();
+
+  int diskCacheThreads();
 }
@@ -0,0 +1,45 @@
+package dev.imprex.orebfuscator.config.api;
+
+import java.util.Locale;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+@NullMarked
+public enum DiskCacheFormat {
+
+  /**
+   * Orebfuscator's own region file format with small sectors and checksummed entries
+   */
+  NATIVE("native", ".ofc"),
+
+  /**
+   * Minecraft's region file format provided by the server implementation
+   */
+  VANILLA("vanilla", ".mca");
+
+  public static @Nullable DiskCacheFormat fromName(String name) {
+    String lowerCaseName = name.toLowerCase(Locale.ROOT);
+    for (DiskCacheFormat format : values()) {
+      if (format.configName.equals(lowerCaseName)) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  private final String configName;
+  private final String fileExtension;
+
+  DiskCacheFormat(String configName, String fileExtension) {
+    this.configName = configName;
+    this.fileExtension = fileExtension;
+  }
+
+  public String configName() {
+    return configName;
+  }
+
+  public String fileExtension() {
+    return fileExtension;
+  }
+}
@@ -0,0 +1,39 @@
+package dev.imprex.orebfuscator.config.api;
+
+import java.util.Locale;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+@NullMarked
+public enum MemoryCachePolicy {
+
+  /**
+   * Least recently used eviction bounded by entry count
+   */
+  LRU("lru"),
+
+  /**
+   * Frequency aware admission and eviction bounded by the estimated size of all entries
+   */
+  TINY_LFU("tinylfu");
+
+  public static @Nullable MemoryCachePolicy fromName(String name) {
+    String lowerCaseName = name.toLowerCase(Locale.ROOT);
+    for (MemoryCachePolicy policy : values()) {
+      if (policy.configName.equals(lowerCaseName)) {
+        return policy;
+      }
+    }
+    return null;
+  }
+
+  private final String configName;
+
+  MemoryCachePolicy(String configName) {
+    this.configName = configName;
+  }
+
+  public String configName() {
+    return configName;
+  }
+}
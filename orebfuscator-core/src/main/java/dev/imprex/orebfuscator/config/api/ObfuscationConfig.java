@@ -8,5 +8,11 @@ public interface ObfuscationConfig extends WorldConfig {
 
   boolean layerObfuscation();
 
+  /**
+   * Whether random blocks that would grow a section's palette should be re-rolled in favor of blocks the palette
+   * already holds, which keeps the palette and thereby the packet smaller.
+   */
+  boolean preferPaletteBlocks();
+
   Iterable<ConfigBlockValue> hiddenBlocks();
 }
@@ -24,4 +24,10 @@ public interface WorldConfigBundle {
   int nextRandomObfuscationBlock(RandomGenerator random, int y);
 
   int nextRandomProximityBlock(RandomGenerator random, int y);
+
+  /**
+   * Returns every block state {@link #nextRandomObfuscationBlock} and {@link #nextRandomProximityBlock} can return for
+   * any y in the given section.
+   */
+  int[] randomBlockStates(int sectionIndex);
 }
@@ -21,6 +21,12 @@ public class ConfigMessage {
   public static final ConfigMessage CACHE_INVALID_PATH = dynamic(
       "contains malformed path '%s', using default path '%s'");
   public static final ConfigMessage CACHE_CAN_NOT_CREATE = dynamic("can't create cache directory '%s'");
+  public static final ConfigMessage CACHE_UNKNOWN_FORMAT = dynamic(
+      "contains unknown format '%s', using default format '%s'");
+  public static final ConfigMessage CACHE_UNKNOWN_POLICY = dynamic(
+      "contains unknown policy '%s', using default policy '%s'");
+  public static final ConfigMessage CACHE_UNKNOWN_COMPRESSION = dynamic(
+      "contains unknown compression '%s', using default compression '%s'");
 
   public static final ConfigMessage RANDOM_BLOCKS_INCOMPLETE = fixed(
       "Incomplete height coverage detected in randomBlocks. " +
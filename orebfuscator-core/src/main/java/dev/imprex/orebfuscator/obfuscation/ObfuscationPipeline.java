@@ -1,14 +1,16 @@
 package dev.imprex.orebfuscator.obfuscation;
 
 import java.util.Arrays;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.cache.CacheLookup;
 import dev.imprex.orebfuscator.cache.CacheRequest;
 import dev.imprex.orebfuscator.cache.ObfuscationCache;
 import dev.imprex.orebfuscator.config.api.AdvancedConfig;
@@ -32,6 +34,9 @@ public class ObfuscationPipeline {
   private final OrebfuscatorStatistics statistics;
   private final OrebfuscatorExecutor executor;
 
+  private final ConcurrentMap<CacheRequest, CompletableFuture<ObfuscationResponse>> inFlightRequests =
+      new ConcurrentHashMap<>();
+
   public ObfuscationPipeline(OrebfuscatorCore orebfuscator) {
     this.config = orebfuscator.config();
     this.cache = orebfuscator.cache();
@@ -56,31 +61,78 @@ public class ObfuscationPipeline {
       @Nullable ChunkAccessor @Nullable [] neighborChunks) {
 
     final var request = new ObfuscationRequest(world, player, packet, neighborChunks);
+    final var cacheRequest = createCacheRequest(request);
 
-    final CacheRequest cacheRequest;
-    final CompletionStage<Optional<ObfuscationResponse>> cacheFuture;
+    final var pending = new CompletableFuture<ObfuscationResponse>();
+    final var inFlight = this.inFlightRequests.putIfAbsent(cacheRequest, pending);
 
-    if (config.cache().enabled()) {
-      ChunkCacheKey cacheKey = new ChunkCacheKey(request);
+    // attach to an identical in-flight request instead of obfuscating the same chunk twice, every
+    // request gets its own copy so that a timeout only affects the request it was applied to
+    CompletionStage<ObfuscationResponse> future;
+    if (inFlight != null) {
+      future = inFlight.copy();
+    } else {
+      obfuscate(request, cacheRequest).whenComplete((response, throwable) -> {
+        this.inFlightRequests.remove(cacheRequest, pending);
+
+        if (throwable != null) {
+          pending.completeExceptionally(throwable);
+        } else {
+          pending.complete(response);
+        }
+      });
+      future = pending.copy();
+    }
+
+    AdvancedConfig advancedConfig = config.advanced();
+    if (advancedConfig.hasObfuscationTimeout()) {
+      future = future
+          .toCompletableFuture()
+          .orTimeout(advancedConfig.obfuscationTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    return future.<Void>thenApplyAsync(response -> {
+      this.postProcess(request, response);
+      return null;
+    }, this.executor).exceptionallyAsync(throwable -> {
+      this.handleExceptions(request, throwable);
+      return null;
+    }, this.executor);
+  }
 
-      byte[] hash = CacheRequest.HASH_FUNCTION.newHasher()
-          .putBytes(config.systemHash())
-          .putBytes(request.packet().data())
-          .hash()
-          .asBytes();
+  private CacheRequest createCacheRequest(ObfuscationRequest request) {
+    ChunkCacheKey cacheKey = new ChunkCacheKey(request);
 
-      cacheRequest = new CacheRequest(cacheKey, hash);
+    byte[] hash = CacheRequest.HASH_FUNCTION.newHasher()
+        .putBytes(config.systemHash())
+        .putBytes(request.packet().data())
+        .hash()
+        .asBytes();
 
+    return new CacheRequest(cacheKey, hash);
+  }
+
+  private CompletionStage<ObfuscationResponse> obfuscate(ObfuscationRequest request, CacheRequest cacheRequest) {
+    final var world = request.world();
+    final var packet = request.packet();
+
+    final CompletionStage<CacheLookup> cacheFuture;
+    if (config.cache().enabled()) {
       var cacheTimer = statistics.injector.pipelineDelayCache.start();
-      cacheFuture = cacheTimer.wrap(this.cache.get(cacheRequest));
+      cacheFuture = cacheTimer.wrap(this.cache.get(cacheRequest, request));
     } else {
-      cacheRequest = null;
-      cacheFuture = CompletableFuture.completedStage(Optional.empty());
+      cacheFuture = CompletableFuture.completedStage(CacheLookup.MISS);
     }
 
-    var future = cacheFuture.thenComposeAsync(optional -> {
-      if (optional.isPresent()) {
-        return CompletableFuture.completedStage(optional.get());
+    // hash sections so that a later request for this chunk can reuse the sections that didn't change
+    final byte @Nullable [] sectionHashSeed = config.cache().enabled() && config.cache().reuseSections()
+        ? config.systemHash()
+        : null;
+
+    return cacheFuture.thenComposeAsync(lookup -> {
+      ObfuscationResponse cachedResponse = lookup.response();
+      if (cachedResponse != null) {
+        return CompletableFuture.completedStage(cachedResponse);
       } else {
         final var neighborTimer = statistics.injector.pipelineDelayNeighbors.start();
         return neighborTimer.wrap(world.getNeighboringChunks(request))
@@ -96,30 +148,16 @@ public class ObfuscationPipeline {
 
               return request.withNeighbors(neighbors);
             }, this.executor)
-            .thenApply(this.processor::process)
+            .thenApply(neighborRequest -> this.processor.process(neighborRequest, sectionHashSeed,
+                lookup.previous()))
             .thenApply(response -> {
-              if (config.cache().enabled() && cacheRequest != null) {
+              if (config.cache().enabled()) {
                 cache.add(cacheRequest, response);
               }
               return response;
             });
       }
     }, this.executor);
-
-    AdvancedConfig advancedConfig = config.advanced();
-    if (advancedConfig.hasObfuscationTimeout()) {
-      future = future
-          .toCompletableFuture()
-          .orTimeout(advancedConfig.obfuscationTimeout(), TimeUnit.MILLISECONDS);
-    }
-
-    return future.<Void>thenApplyAsync(response -> {
-      this.postProcess(request, response);
-      return null;
-    }, this.executor).exceptionallyAsync(throwable -> {
-      this.handleExceptions(request, throwable);
-      return null;
-    }, this.executor);
   }
 
   private void postProcess(ObfuscationRequest request, ObfuscationResponse response) {
@@ -1,12 +1,17 @@
 package dev.imprex.orebfuscator.obfuscation;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
 import java.util.random.RandomGenerator;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import dev.imprex.orebfuscator.cache.CacheRequest;
 import dev.imprex.orebfuscator.chunk.Chunk;
 import dev.imprex.orebfuscator.chunk.ChunkFactory;
 import dev.imprex.orebfuscator.chunk.ChunkSection;
@@ -29,6 +34,8 @@ public class ObfuscationProcessor {
 
   private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
 
+  private static final int MAX_PALETTE_REROLLS = 8;
+
   private final ChunkFactory chunkFactory;
   private final RegistryAccessor registryAccessor;
   private final OrebfuscatorStatistics statistics;
@@ -40,15 +47,26 @@ public class ObfuscationProcessor {
   }
 
   public ObfuscationResponse process(ObfuscationRequest request) {
+    return process(request, null, null);
+  }
+
+  /**
+   * Same as {@link #process(ObfuscationRequest)} but also hashes every section with the given seed if present. If the
+   * previous result for the same chunk has section hashes, the edits of all sections that are still valid get
+   * replayed instead of obfuscating those sections again.
+   */
+  public ObfuscationResponse process(ObfuscationRequest request, byte @Nullable [] sectionHashSeed,
+      @Nullable ObfuscationResponse previous) {
     var timer = statistics.injector.pipelineDelayProcessor.start();
     try {
-      return processInternal(request);
+      return processInternal(request, sectionHashSeed, previous);
     } finally {
       timer.stop();
     }
   }
 
-  private ObfuscationResponse processInternal(ObfuscationRequest request) {
+  private ObfuscationResponse processInternal(ObfuscationRequest request, byte @Nullable [] sectionHashSeed,
+      @Nullable ObfuscationResponse previous) {
     ChunkPacketAccessor packet = request.packet();
     WorldAccessor worldAccessor = request.world();
 
@@ -58,9 +76,7 @@ public class ObfuscationProcessor {
     ProximityConfig proximityConfig = bundle.proximity();
 
     var state = STATE.get();
-
-    Set<BlockPos> blockEntities = new HashSet<>();
-    List<ProximityBlock> proximityBlocks = new ArrayList<>();
+    state.clear();
 
     RandomGenerator random = ThreadLocalRandom.current();
     if (Thread.currentThread() instanceof OrebfuscatorThread obfuscationThread) {
@@ -73,101 +89,277 @@ public class ObfuscationProcessor {
     int layerY = Integer.MIN_VALUE;
     int layerYBlockState = -1;
 
-    try (Chunk chunk = this.chunkFactory.fromPacket(request)) {
+    // flags(blockState, y) only ever adds bits to non-empty flags, so a palette check without y is enough
+    IntPredicate hasFlags = blockState -> !BlockFlags.isEmpty(blockFlags.flags(blockState));
+
+    try (Chunk chunk = this.chunkFactory.fromPacket(request, state.sectionBuffers(worldAccessor.sectionCount()))) {
+      SectionHashes sectionHashes = null;
+      boolean[] reusedSections = null;
+
+      if (sectionHashSeed != null) {
+        sectionHashes = hashSections(chunk, sectionHashSeed);
+        if (previous != null) {
+          reusedSections = reusePreviousSections(chunk, bundle, state, previous, sectionHashes);
+        }
+      }
+
       for (int sectionIndex = Math.max(0, bundle.minSectionIndex()); sectionIndex <= Math
           .min(chunk.getSectionCount() - 1, bundle.maxSectionIndex()); sectionIndex++) {
+        state.enclosedSectionIndex = -1;
+
+        if (reusedSections != null && reusedSections[sectionIndex]) {
+          continue;
+        }
+
+        // skip sections without any block state that could get obfuscated, they get copied as is
+        if (!chunk.mayContain(sectionIndex, hasFlags)) {
+          continue;
+        }
+
         ChunkSection chunkSection = chunk.getSection(sectionIndex);
-        if (chunkSection == null || chunkSection.isEmpty()) {
+        if (chunkSection.isEmpty()) {
           continue;
         }
 
+        chunkSection.setExpectedBlockStates(bundle.randomBlockStates(sectionIndex));
+
+        // classify the whole section up front so that the loop below only visits blocks with flags
+        int[] data = chunk.getSectionData(sectionIndex);
+        long[] candidates = state.candidates;
+        fillCandidateMask(data, blockFlags, candidates);
+
         final int baseY = worldAccessor.minBuildHeight() + (sectionIndex << 4);
-        for (int index = 0; index < 4096; index++) {
-          int y = baseY + (index >> 8 & 15);
-          if (!bundle.shouldObfuscate(y)) {
+        for (int i = 0; i < 64; i++) {
+          // every long covers four rows of the same layer
+          int y = baseY + (i >> 2);
+          long bits = candidates[i];
+          if (bits == 0 || !bundle.shouldObfuscate(y)) {
             continue;
           }
 
-          int blockState = chunkSection.getBlockState(index);
+          for (; bits != 0; bits &= bits - 1) {
+            int index = i << 6 | Long.numberOfTrailingZeros(bits);
+            int blockState = data[index];
 
-          int obfuscateBits = blockFlags.flags(blockState, y);
-          if (BlockFlags.isEmpty(obfuscateBits)) {
-            continue;
-          }
+            int obfuscateBits = blockFlags.flags(blockState, y);
 
-          int x = baseX + (index & 15);
-          int z = baseZ + (index >> 4 & 15);
+            int x = baseX + (index & 15);
+            int z = baseZ + (index >> 4 & 15);
 
-          boolean isObfuscateBitSet = BlockFlags.isObfuscateBitSet(obfuscateBits);
-          boolean obfuscated = false;
+            boolean isObfuscateBitSet = BlockFlags.isObfuscateBitSet(obfuscateBits);
+            boolean obfuscated = false;
 
-          // should current block be obfuscated
-          if (isObfuscateBitSet && obfuscationConfig != null && obfuscationConfig.shouldObfuscate(y)
-              && shouldObfuscate(request, chunk, state, x, y, z)) {
-            if (state.isLava) {
-              proximityBlocks.add(new ProximityBlock(new BlockPos(x, y, z), true));
-            }
-            if (obfuscationConfig.layerObfuscation()) {
-              if (layerY != y) {
-                layerY = y;
-                layerYBlockState = bundle.nextRandomObfuscationBlock(random, y);
+            // should current block be obfuscated
+            if (isObfuscateBitSet && obfuscationConfig != null && obfuscationConfig.shouldObfuscate(y)
+                && shouldObfuscate(request, chunk, state, sectionIndex, index, x, y, z)) {
+              if (state.isLava) {
+                state.addProximityBlock(x, y, z, true);
               }
-              blockState = layerYBlockState;
-            } else {
-              blockState = bundle.nextRandomObfuscationBlock(random, y);
+              if (obfuscationConfig.layerObfuscation()) {
+                if (layerY != y) {
+                  layerY = y;
+                  layerYBlockState = nextRandomObfuscationBlock(random, bundle, obfuscationConfig, chunkSection, y);
+                }
+                blockState = layerYBlockState;
+              } else {
+                blockState = nextRandomObfuscationBlock(random, bundle, obfuscationConfig, chunkSection, y);
+              }
+              obfuscated = true;
             }
-            obfuscated = true;
-          }
 
-          // should current block be proximity hidden
-          if (!obfuscated && BlockFlags.isProximityBitSet(obfuscateBits) && proximityConfig != null
-              && proximityConfig.shouldObfuscate(y)) {
-            proximityBlocks.add(new ProximityBlock(new BlockPos(x, y, z), false));
-            if (BlockFlags.isUseBlockBelowBitSet(obfuscateBits)) {
-              boolean allowNonOcclude = !isObfuscateBitSet || !ProximityHeightCondition.isPresent(obfuscateBits);
-              blockState = getBlockStateBelow(random, bundle, chunk, x, y, z, allowNonOcclude);
-            } else {
-              blockState = bundle.nextRandomProximityBlock(random, y);
+            // should current block be proximity hidden
+            if (!obfuscated && BlockFlags.isProximityBitSet(obfuscateBits) && proximityConfig != null
+                && proximityConfig.shouldObfuscate(y)) {
+              state.addProximityBlock(x, y, z, false);
+              if (BlockFlags.isUseBlockBelowBitSet(obfuscateBits)) {
+                boolean allowNonOcclude = !isObfuscateBitSet || !ProximityHeightCondition.isPresent(obfuscateBits);
+                blockState = getBlockStateBelow(random, bundle, chunk, state, x, y, z, allowNonOcclude);
+                if (sectionHashes != null) {
+                  sectionHashes.dependsOnBelow()[sectionIndex] = true;
+                }
+              } else {
+                blockState = bundle.nextRandomProximityBlock(random, y);
+              }
+              obfuscated = true;
             }
-            obfuscated = true;
-          }
 
-          // update block state if needed
-          if (obfuscated) {
-            chunkSection.setBlockState(index, blockState);
-            if (BlockFlags.isBlockEntityBitSet(obfuscateBits)) {
-              blockEntities.add(new BlockPos(x, y, z));
+            // update block state if needed
+            if (obfuscated) {
+              chunkSection.setBlockState(index, blockState);
+              state.addEdit(sectionIndex, index, blockState);
+              if (BlockFlags.isBlockEntityBitSet(obfuscateBits)) {
+                state.addBlockEntity(x, y, z);
+              }
             }
-          }
 
-          state.reset();
+            state.reset();
+          }
         }
       }
 
-      return new ObfuscationResponse(chunk.finalizeOutput(), blockEntities, proximityBlocks);
+      return new ObfuscationResponse(chunk.finalizeOutput(), state.blockEntities(baseX, baseZ),
+          state.proximityBlocks(baseX, baseZ), state.edits(), sectionHashes);
+    }
+  }
+
+  private static SectionHashes hashSections(Chunk chunk, byte[] seed) {
+    long[] hashes = new long[chunk.getSectionCount()];
+
+    for (int sectionIndex = 0; sectionIndex < hashes.length; sectionIndex++) {
+      ByteBuffer sectionBytes = chunk.getSectionBytes(sectionIndex);
+      if (sectionBytes != null) {
+        hashes[sectionIndex] = CacheRequest.HASH_FUNCTION.newHasher()
+            .putBytes(seed)
+            .putBytes(sectionBytes)
+            .hash()
+            .asLong();
+      }
+    }
+
+    return new SectionHashes(hashes, new boolean[hashes.length]);
+  }
+
+  /**
+   * Replays the edits, proximity blocks and block entities of all sections from the previous result that are still
+   * valid for the given chunk and returns which sections got reused.
+   */
+  private boolean @Nullable [] reusePreviousSections(Chunk chunk, WorldConfigBundle bundle, State state,
+      ObfuscationResponse previous, SectionHashes sectionHashes) {
+    SectionHashes previousHashes = previous.sectionHashes();
+    int[] edits = previous.edits();
+    if (previousHashes == null || edits == null) {
+      return null;
+    }
+
+    long[] hashes = sectionHashes.hashes();
+    boolean[] reused = new boolean[hashes.length];
+    for (int sectionIndex = 0; sectionIndex < hashes.length; sectionIndex++) {
+      if (previousHashes.canReuse(sectionIndex, hashes)) {
+        reused[sectionIndex] = true;
+        sectionHashes.dependsOnBelow()[sectionIndex] = previousHashes.dependsOnBelow()[sectionIndex];
+      }
+    }
+
+    ChunkSection chunkSection = null;
+    int chunkSectionIndex = -1;
+
+    for (int i = 0; i < edits.length; i += 2) {
+      int sectionIndex = edits[i] >>> 12;
+      if (!reused[sectionIndex]) {
+        continue;
+      }
+
+      if (sectionIndex != chunkSectionIndex) {
+        chunkSection = chunk.getSection(sectionIndex);
+        chunkSection.setExpectedBlockStates(bundle.randomBlockStates(sectionIndex));
+        chunkSectionIndex = sectionIndex;
+      }
+
+      chunkSection.setBlockState(edits[i] & 0xFFF, edits[i + 1]);
+      state.addEdit(sectionIndex, edits[i] & 0xFFF, edits[i + 1]);
+    }
+
+    WorldAccessor worldAccessor = chunk.world();
+    for (ProximityBlock proximityBlock : previous.proximityBlocks()) {
+      BlockPos blockPos = proximityBlock.blockPos();
+      if (reused[worldAccessor.sectionIndex(blockPos.y())]) {
+        state.addProximityBlock(blockPos.x(), blockPos.y(), blockPos.z(), proximityBlock.lavaObfuscated());
+      }
+    }
+
+    for (BlockPos blockPos : previous.blockEntities()) {
+      if (reused[worldAccessor.sectionIndex(blockPos.y())]) {
+        state.addBlockEntity(blockPos.x(), blockPos.y(), blockPos.z());
+      }
     }
+
+    return reused;
+  }
+
+  private int nextRandomObfuscationBlock(RandomGenerator random, WorldConfigBundle bundle,
+      ObfuscationConfig obfuscationConfig, ChunkSection chunkSection, int y) {
+    int blockState = bundle.nextRandomObfuscationBlock(random, y);
+
+    // re-roll blocks that would grow the palette, this samples the configured weights restricted to the blocks that
+    // still fit and leaves the distribution untouched as long as the palette has room
+    if (obfuscationConfig.preferPaletteBlocks()) {
+      for (int i = 0; i < MAX_PALETTE_REROLLS && !chunkSection.canHoldWithoutGrowing(blockState); i++) {
+        blockState = bundle.nextRandomObfuscationBlock(random, y);
+      }
+    }
+
+    return blockState;
   }
 
   // returns first block below given position that wouldn't be obfuscated in any
   // way at given position
-  private int getBlockStateBelow(RandomGenerator random, WorldConfigBundle bundle, Chunk chunk, int x, int y, int z,
-      boolean allowNonOcclude) {
+  private int getBlockStateBelow(RandomGenerator random, WorldConfigBundle bundle, Chunk chunk, State state, int x,
+      int y, int z, boolean allowNonOcclude) {
     BlockFlags blockFlags = bundle.blockFlags();
 
-    for (int targetY = y - 1; targetY > chunk.world().minBuildHeight(); targetY--) {
+    // blocks get visited bottom-up, so every column only has to be scanned once per chunk. The last acceptable block
+    // scanned so far is the first acceptable block below y. The height condition is ignored since it can't change
+    // whether flags are empty and doesn't affect the allow bit.
+    int column = (allowNonOcclude ? 256 : 0) | (z & 15) << 4 | (x & 15);
+    int targetY = state.belowScannedY[column];
+    int blockState = state.belowBlockState[column];
+
+    if (targetY == Integer.MIN_VALUE || targetY >= y) {
+      targetY = chunk.world().minBuildHeight();
+      blockState = -1;
+    }
+
+    for (targetY++; targetY < y; targetY++) {
       int blockData = chunk.getBlockState(x, targetY, z);
       if (blockData != -1 && (allowNonOcclude || registryAccessor.isOccluding(blockData))) {
-        int mask = blockFlags.flags(blockData, y);
+        int mask = blockFlags.flags(blockData);
         if (BlockFlags.isEmpty(mask) || BlockFlags.isAllowForUseBlockBelowBitSet(mask)) {
-          return blockData;
+          blockState = blockData;
         }
       }
     }
 
-    return bundle.nextRandomProximityBlock(random, y);
+    state.belowScannedY[column] = y - 1;
+    state.belowBlockState[column] = blockState;
+
+    return blockState != -1 ? blockState : bundle.nextRandomProximityBlock(random, y);
+  }
+
+  /**
+   * Sets the bit of every block in the section whose block state has any flag, using the same index layout as
+   * {@link #computeEnclosedMask(Chunk, int, State)}. The height condition is ignored since it only ever adds flags to
+   * block states that already have some. The inner loop is kept branch free so the JIT can unroll it.
+   */
+  private static void fillCandidateMask(int[] data, BlockFlags blockFlags, long[] mask) {
+    for (int i = 0; i < 64; i++) {
+      int offset = i << 6;
+      long bits = 0;
+      for (int j = 0; j < 64; j++) {
+        // (flags & 0xFF) is at most 255, adding 255 carries into bit 8 for any non-empty flags
+        int flags = blockFlags.flags(data[offset + j]) & 0xFF;
+        bits |= (long) ((flags + 0xFF) >>> 8) << j;
+      }
+      mask[i] = bits;
+    }
   }
 
-  private boolean shouldObfuscate(ObfuscationRequest request, Chunk chunk, State state, int x, int y, int z) {
+  private boolean shouldObfuscate(ObfuscationRequest request, Chunk chunk, State state, int sectionIndex, int index,
+      int x, int y, int z) {
+    if (state.enclosedSectionIndex != sectionIndex) {
+      computeEnclosedMask(chunk, sectionIndex, state);
+    }
+
+    if ((state.enclosed[index >> 6] & (1L << index)) != 0) {
+      return true;
+    }
+
+    // without any lava close by only blocks at the chunk border need the neighbor chunks
+    int localX = index & 15;
+    int localZ = index >> 4 & 15;
+    if (state.lavaFree && localX > 0 && localX < 15 && localZ > 0 && localZ < 15) {
+      return false;
+    }
+
     return isAdjacentBlockOccluding(request, chunk, state, x, y + 1, z)
         && isAdjacentBlockOccluding(request, chunk, state, x, y - 1, z)
         && isAdjacentBlockOccluding(request, chunk, state, x + 1, y, z)
@@ -176,6 +368,66 @@ public class ObfuscationProcessor {
         && isAdjacentBlockOccluding(request, chunk, state, x, y, z - 1);
   }
 
+  /**
+   * Computes a bit mask of all blocks in the given section whose six neighbors are occluding, the same index layout as
+   * {@link ChunkSection#getBlockState(int)} is used with 64 blocks (four x rows) per long. Neighbors in other chunks
+   * aren't known, so blocks at the chunk border are never marked.
+   */
+  private void computeEnclosedMask(Chunk chunk, int sectionIndex, State state) {
+    long[] occluding = state.occluding;
+    long[] above = state.occludingAbove;
+    long[] below = state.occludingBelow;
+
+    // lava is the only non-occluding neighbor that can still count as occluding, remember if there is any
+    boolean lava = fillOcclusionMask(chunk.getSectionData(sectionIndex), 0, occluding, 64);
+
+    int[] dataAbove = sectionIndex + 1 < chunk.getSectionCount() ? chunk.getSectionData(sectionIndex + 1) : null;
+    lava |= fillOcclusionMask(dataAbove, 0, above, 4);
+
+    int[] dataBelow = sectionIndex > 0 ? chunk.getSectionData(sectionIndex - 1) : null;
+    lava |= fillOcclusionMask(dataBelow, 60, below, 4);
+
+    for (int i = 0; i < 64; i++) {
+      long mask = occluding[i];
+
+      // four x rows per long, clear the bits that would wrap around into the next or previous row
+      long east = (mask >>> 1) & ~0x8000800080008000L;
+      long west = (mask << 1) & ~0x0001000100010001L;
+
+      long south = (mask >>> 16) | ((i & 3) != 3 ? occluding[i + 1] << 48 : 0);
+      long north = (mask << 16) | ((i & 3) != 0 ? occluding[i - 1] >>> 48 : 0);
+
+      long up = i < 60 ? occluding[i + 4] : above[i - 60];
+      long down = i >= 4 ? occluding[i - 4] : below[i];
+
+      state.enclosed[i] = east & west & south & north & up & down;
+    }
+
+    state.lavaFree = !lava;
+    state.enclosedSectionIndex = sectionIndex;
+  }
+
+  /**
+   * Sets the bits of all occluding blocks in the given range of longs and returns {@code true} if any of the other
+   * blocks is lava. Missing sections are treated as air.
+   */
+  private boolean fillOcclusionMask(int @Nullable [] data, int offset, long[] mask, int length) {
+    Arrays.fill(mask, 0, length, 0L);
+
+    boolean lava = false;
+    if (data != null) {
+      for (int i = 0; i < length << 6; i++) {
+        int blockState = data[(offset << 6) + i];
+        if (registryAccessor.isOccluding(blockState)) {
+          mask[i >> 6] |= 1L << i;
+        } else if (registryAccessor.isLava(blockState)) {
+          lava = true;
+        }
+      }
+    }
+    return lava;
+  }
+
   private boolean isAdjacentBlockOccluding(ObfuscationRequest request, Chunk chunk, State state, int x, int y, int z) {
     int blockId = getBlockId(request, chunk, x, y, z);
     if (registryAccessor.isOccluding(blockId)) {
@@ -204,12 +456,100 @@ public class ObfuscationProcessor {
     return blockId;
   }
 
+  /**
+   * Per thread scratch space that gets reused for every processed chunk. Positions are stored in their packed section
+   * form (see {@link BlockPos#toSectionPos()}) and only get boxed once the response is built.
+   */
   private static class State {
 
     public boolean isLava = false;
 
+    public int enclosedSectionIndex = -1;
+    public boolean lavaFree = false;
+    public final long[] candidates = new long[64];
+    public final long[] enclosed = new long[64];
+    public final long[] occluding = new long[64];
+    public final long[] occludingAbove = new long[4];
+    public final long[] occludingBelow = new long[4];
+
+    // per column and occlusion mode, the highest y scanned by getBlockStateBelow and the block state it found
+    public final int[] belowScannedY = new int[512];
+    public final int[] belowBlockState = new int[512];
+
+    private int[][] sectionBuffers = new int[0][];
+
+    private int[] blockEntities = new int[64];
+    private int blockEntityCount = 0;
+
+    private int[] proximityBlocks = new int[64];
+    private boolean[] proximityLava = new boolean[64];
+    private int proximityBlockCount = 0;
+
+    private int[] edits = new int[128];
+    private int editCount = 0;
+
     public void reset() {
       this.isLava = false;
     }
+
+    public void clear() {
+      this.isLava = false;
+      Arrays.fill(this.belowScannedY, Integer.MIN_VALUE);
+      this.blockEntityCount = 0;
+      this.proximityBlockCount = 0;
+      this.editCount = 0;
+    }
+
+    public int[][] sectionBuffers(int sectionCount) {
+      if (this.sectionBuffers.length < sectionCount) {
+        this.sectionBuffers = Arrays.copyOf(this.sectionBuffers, sectionCount);
+      }
+      return this.sectionBuffers;
+    }
+
+    public void addBlockEntity(int x, int y, int z) {
+      if (this.blockEntityCount == this.blockEntities.length) {
+        this.blockEntities = Arrays.copyOf(this.blockEntities, this.blockEntityCount * 2);
+      }
+      this.blockEntities[this.blockEntityCount++] = BlockPos.toSectionPos(x, y, z);
+    }
+
+    public void addProximityBlock(int x, int y, int z, boolean lavaObfuscated) {
+      if (this.proximityBlockCount == this.proximityBlocks.length) {
+        this.proximityBlocks = Arrays.copyOf(this.proximityBlocks, this.proximityBlockCount * 2);
+        this.proximityLava = Arrays.copyOf(this.proximityLava, this.proximityBlockCount * 2);
+      }
+      this.proximityLava[this.proximityBlockCount] = lavaObfuscated;
+      this.proximityBlocks[this.proximityBlockCount++] = BlockPos.toSectionPos(x, y, z);
+    }
+
+    public void addEdit(int sectionIndex, int index, int blockState) {
+      if (this.editCount == this.edits.length) {
+        this.edits = Arrays.copyOf(this.edits, this.editCount * 2);
+      }
+      this.edits[this.editCount++] = sectionIndex << 12 | index;
+      this.edits[this.editCount++] = blockState;
+    }
+
+    public int[] edits() {
+      return Arrays.copyOf(this.edits, this.editCount);
+    }
+
+    public Set<BlockPos> blockEntities(int baseX, int baseZ) {
+      Set<BlockPos> blockEntities = new HashSet<>(Math.max(16, (int) (this.blockEntityCount / .75f) + 1));
+      for (int i = 0; i < this.blockEntityCount; i++) {
+        blockEntities.add(BlockPos.fromSectionPos(baseX, baseZ, this.blockEntities[i]));
+      }
+      return blockEntities;
+    }
+
+    public List<ProximityBlock> proximityBlocks(int baseX, int baseZ) {
+      List<ProximityBlock> proximityBlocks = new ArrayList<>(this.proximityBlockCount);
+      for (int i = 0; i < this.proximityBlockCount; i++) {
+        BlockPos blockPos = BlockPos.fromSectionPos(baseX, baseZ, this.proximityBlocks[i]);
+        proximityBlocks.add(new ProximityBlock(blockPos, this.proximityLava[i]));
+      }
+      return proximityBlocks;
+    }
   }
 }
\ No newline at end of file
@@ -4,15 +4,26 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import dev.imprex.orebfuscator.player.ProximityBlock;
 import dev.imprex.orebfuscator.util.BlockPos;
 
+/**
+ * Result of obfuscating a chunk packet. If present, {@code edits} holds every block state that got replaced as pairs of
+ * {@code sectionIndex << 12 | blockIndex} and the new block state, in the order they got applied. Section hashes are
+ * only present if requested, see {@link ObfuscationProcessor#process(ObfuscationRequest, byte[], ObfuscationResponse)}.
+ */
 @NullMarked
-public record ObfuscationResponse(byte[] data, Set<BlockPos> blockEntities, List<ProximityBlock> proximityBlocks) {
+public record ObfuscationResponse(byte[] data, Set<BlockPos> blockEntities, List<ProximityBlock> proximityBlocks,
+    int @Nullable [] edits, @Nullable SectionHashes sectionHashes) {
 
   public ObfuscationResponse {
     Objects.requireNonNull(data);
     Objects.requireNonNull(blockEntities);
     Objects.requireNonNull(proximityBlocks);
   }
+
+  public ObfuscationResponse(byte[] data, Set<BlockPos> blockEntities, List<ProximityBlock> proximityBlocks) {
+    this(data, blockEntities, proximityBlocks, null, null);
+  }
 }
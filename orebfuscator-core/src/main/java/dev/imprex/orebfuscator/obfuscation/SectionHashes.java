@@ -0,0 +1,41 @@
+package dev.imprex.orebfuscator.obfuscation;
+
+import java.util.Objects;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Fingerprints of the sections of the packet an obfuscation result was computed for. The edits of a section only
+ * depend on the section itself and the sections directly above and below it, unless a block got replaced with the
+ * block below it, which can be found in any section further down.
+ */
+@NullMarked
+public record SectionHashes(long[] hashes, boolean[] dependsOnBelow) {
+
+  public SectionHashes {
+    Objects.requireNonNull(hashes);
+    Objects.requireNonNull(dependsOnBelow);
+
+    if (hashes.length != dependsOnBelow.length) {
+      throw new IllegalArgumentException("hashes.length != dependsOnBelow.length");
+    }
+  }
+
+  /**
+   * Returns {@code true} if the edits of the given section are still valid for a packet with the given hashes.
+   */
+  public boolean canReuse(int sectionIndex, long[] currentHashes) {
+    if (currentHashes.length != this.hashes.length) {
+      return false;
+    }
+
+    int from = this.dependsOnBelow[sectionIndex] ? 0 : Math.max(0, sectionIndex - 1);
+    int to = Math.min(this.hashes.length - 1, sectionIndex + 1);
+
+    for (int i = from; i <= to; i++) {
+      if (this.hashes[i] != currentHashes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
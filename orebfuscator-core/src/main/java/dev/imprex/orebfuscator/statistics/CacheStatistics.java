@@ -89,12 +89,12 @@ public class CacheStatistics implements StatisticsSource {
     long memoryCacheEntryCount = this.memoryCacheEntryCount.getAsLong();
 
     long memoryCacheBytesPerEntry = 0;
-    if (memoryCacheByteSize > 0) {
+    if (memoryCacheEntryCount > 0) {
       memoryCacheBytesPerEntry = memoryCacheByteSize / memoryCacheEntryCount;
     }
 
-    joiner.add(String.format(" - memoryCache (count/bytesPerEntry): %s / %s ",
-        memoryCacheEntryCount, bytes(memoryCacheBytesPerEntry)));
+    joiner.add(String.format(" - memoryCache (count/size/bytesPerEntry): %s / %s / %s",
+        memoryCacheEntryCount, bytes(memoryCacheByteSize), bytes(memoryCacheBytesPerEntry)));
 
     if (this.config.enableDiskCache()) {
       long diskCacheQueueLength = this.diskCacheQueueLength.getAsLong();
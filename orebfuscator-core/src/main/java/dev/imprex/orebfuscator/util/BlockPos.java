@@ -50,7 +50,11 @@ public record BlockPos(int x, int y, int z) implements Comparable<BlockPos> {
   }
 
   public int toSectionPos() {
-    return (this.x & 0xF) << 12 | (this.y & 0xFFF) | (this.z & 0xF) << 16;
+    return toSectionPos(this.x, this.y, this.z);
+  }
+
+  public static int toSectionPos(int x, int y, int z) {
+    return (x & 0xF) << 12 | (y & 0xFFF) | (z & 0xF) << 16;
   }
 
   public static BlockPos fromSectionPos(int x, int z, int sectionPos) {
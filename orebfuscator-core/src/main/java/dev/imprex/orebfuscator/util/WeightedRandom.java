@@ -165,6 +165,15 @@ public final class WeightedRandom {
     return values[pick];
   }
 
+  /**
+   * Returns all values this sampler can return.
+   *
+   * @return a copy of the configured values
+   */
+  public int[] values() {
+    return this.values.clone();
+  }
+
   /**
    * Builder for {@link WeightedRandom}.
    * <p>
@@ -0,0 +1,343 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.config.OrebfuscatorConfig;
+import dev.imprex.orebfuscator.config.api.CacheCompression;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
+import dev.imprex.orebfuscator.statistics.OrebfuscatorStatistics;
+import dev.imprex.orebfuscator.statistics.StatisticsRegistry;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class AsyncChunkSerializerTest {
+
+  private static ChunkCacheEntry entry(ChunkCacheKey key) {
+    byte[] data = new byte[32];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (key.x() * 31 + key.z() + i);
+    }
+    // zeroed header bytes select the uncompressed codec
+    data[CacheRequest.HASH_LENGTH + 1] = 0;
+    return new ChunkCacheEntry(key, data);
+  }
+
+  private static ChunkCacheKey key(int regionX, int index) {
+    return new ChunkCacheKey("world", regionX * 32 + index, 0);
+  }
+
+  private CacheConfig cacheConfig;
+  private OrebfuscatorCore orebfuscator;
+  private MemoryRegionFileCache regionFileCache;
+
+  @BeforeEach
+  void setup() {
+    this.cacheConfig = mock(CacheConfig.class);
+    when(this.cacheConfig.maximumTaskQueueSize()).thenReturn(1024);
+    when(this.cacheConfig.diskCacheThreads()).thenReturn(4);
+    when(this.cacheConfig.maximumOpenRegionFiles()).thenReturn(256);
+    when(this.cacheConfig.diskCacheCompression()).thenReturn(CacheCompression.NONE);
+    when(this.cacheConfig.regionFile(any())).thenAnswer(invocation -> {
+      ChunkCacheKey key = invocation.getArgument(0);
+      return Path.of(key.world(), "r." + (key.x() >> 5) + "." + (key.z() >> 5));
+    });
+
+    OrebfuscatorConfig config = mock(OrebfuscatorConfig.class);
+    when(config.cache()).thenReturn(this.cacheConfig);
+
+    var statistics = new OrebfuscatorStatistics(config, mock(StatisticsRegistry.class));
+
+    this.orebfuscator = mock(OrebfuscatorCore.class);
+    when(this.orebfuscator.config()).thenReturn(config);
+    when(this.orebfuscator.statistics()).thenReturn(statistics);
+  }
+
+  private AsyncChunkSerializer createSerializer() {
+    this.regionFileCache = new MemoryRegionFileCache(this.cacheConfig);
+    return new AsyncChunkSerializer(this.orebfuscator, this.regionFileCache);
+  }
+
+  @Test
+  void testRegionsStayOnOneWorker() throws Exception {
+    var serializer = this.createSerializer();
+
+    List<ChunkCacheKey> keys = new ArrayList<>();
+    for (int regionX = 0; regionX < 32; regionX++) {
+      for (int index = 0; index < 4; index++) {
+        ChunkCacheKey key = key(regionX, index);
+        keys.add(key);
+        serializer.write(key, entry(key));
+      }
+    }
+    serializer.close();
+
+    // tasks still queued once a worker stopped get drained by the closing thread
+    String closingThread = Thread.currentThread().getName();
+
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    for (Map.Entry<Path, Set<String>> entry : this.regionFileCache.writerThreads.entrySet()) {
+      Set<String> workers = entry.getValue();
+      workers.remove(closingThread);
+      assertTrue(workers.size() <= 1, "region written by multiple workers: " + entry.getKey());
+      threads.addAll(workers);
+    }
+    assertTrue(threads.size() > 1, "all regions got handled by the same worker");
+
+    for (ChunkCacheKey key : keys) {
+      assertArrayEquals(entry(key).compressedData(), this.regionFileCache.stored(key));
+    }
+  }
+
+  @Test
+  void testReadAfterWrite() throws Exception {
+    var serializer = this.createSerializer();
+    this.regionFileCache.gate = new CountDownLatch(1);
+
+    List<ChunkCacheKey> keys = new ArrayList<>();
+    List<ChunkCacheEntry> entries = new ArrayList<>();
+    for (int regionX = 0; regionX < 32; regionX++) {
+      ChunkCacheKey key = key(regionX, 0);
+      keys.add(key);
+      entries.add(entry(key));
+      serializer.write(key, entries.get(regionX));
+    }
+
+    // every worker is blocked on its first write, so all later writes are still queued
+    List<CompletableFuture<@Nullable ChunkCacheEntry>> reads = new ArrayList<>();
+    int coalesced = 0;
+    for (int i = 0; i < keys.size(); i++) {
+      CompletableFuture<@Nullable ChunkCacheEntry> read = serializer.read(keys.get(i));
+      if (read.isDone()) {
+        assertSame(entries.get(i), read.get());
+        coalesced++;
+      }
+      reads.add(read);
+    }
+    assertTrue(coalesced >= keys.size() - 4, "reads didn't get completed by queued writes: " + coalesced);
+
+    this.regionFileCache.gate.countDown();
+    for (int i = 0; i < keys.size(); i++) {
+      ChunkCacheEntry entry = reads.get(i).get(10, TimeUnit.SECONDS);
+      assertNotNull(entry);
+      assertArrayEquals(entries.get(i).compressedData(), entry.compressedData());
+    }
+
+    serializer.close();
+  }
+
+  @Test
+  void testCloseDrainsQueue() throws Exception {
+    when(this.cacheConfig.diskCacheThreads()).thenReturn(1);
+    var serializer = this.createSerializer();
+    this.regionFileCache.gate = new CountDownLatch(1);
+
+    List<ChunkCacheKey> keys = new ArrayList<>();
+    for (int regionX = 0; regionX < 8; regionX++) {
+      ChunkCacheKey key = key(regionX, 1);
+      keys.add(key);
+      serializer.write(key, entry(key));
+    }
+    assertTrue(this.regionFileCache.arrived.await(10, TimeUnit.SECONDS));
+
+    // reads that are still queued on close complete without touching the disk
+    CompletableFuture<@Nullable ChunkCacheEntry> read = serializer.read(key(100, 0));
+
+    Thread closeThread = new Thread(serializer::close);
+    closeThread.start();
+    this.regionFileCache.gate.countDown();
+    closeThread.join(TimeUnit.SECONDS.toMillis(10));
+    assertFalse(closeThread.isAlive());
+
+    assertNull(read.get(10, TimeUnit.SECONDS));
+    for (ChunkCacheKey key : keys) {
+      assertArrayEquals(entry(key).compressedData(), this.regionFileCache.stored(key));
+    }
+  }
+
+  @Test
+  void testRunningBatchCountsAgainstQueueSize() throws Exception {
+    when(this.cacheConfig.diskCacheThreads()).thenReturn(1);
+    when(this.cacheConfig.maximumTaskQueueSize()).thenReturn(4);
+    var serializer = this.createSerializer();
+    this.regionFileCache.gate = new CountDownLatch(1);
+
+    serializer.write(key(0, 0), entry(key(0, 0)));
+    assertTrue(this.regionFileCache.arrived.await(10, TimeUnit.SECONDS));
+
+    // the running write plus three queued ones fill the queue, so the fourth has to wait
+    Thread writer = new Thread(() -> {
+      for (int regionX = 1; regionX <= 4; regionX++) {
+        serializer.write(key(regionX, 0), entry(key(regionX, 0)));
+      }
+    });
+    writer.start();
+    writer.join(200);
+    assertTrue(writer.isAlive(), "queue exceeded its maximum size");
+
+    this.regionFileCache.gate.countDown();
+    writer.join(TimeUnit.SECONDS.toMillis(10));
+    assertFalse(writer.isAlive());
+
+    serializer.close();
+  }
+
+  @Test
+  void testEvictedRegionFilesStayOpenWhileInUse() throws Exception {
+    when(this.cacheConfig.maximumOpenRegionFiles()).thenReturn(1);
+    var serializer = this.createSerializer();
+
+    List<ChunkCacheKey> keys = new ArrayList<>();
+    for (int round = 0; round < 8; round++) {
+      for (int regionX = 0; regionX < 16; regionX++) {
+        ChunkCacheKey key = key(regionX, round);
+        keys.add(key);
+        serializer.write(key, entry(key));
+      }
+    }
+    serializer.close();
+
+    assertEquals(0, this.regionFileCache.closedAccesses.get());
+    for (ChunkCacheKey key : keys) {
+      assertArrayEquals(entry(key).compressedData(), this.regionFileCache.stored(key));
+    }
+  }
+
+  @Test
+  void testCorruptEntryKeepsWorkerAlive() throws Exception {
+    when(this.cacheConfig.diskCacheThreads()).thenReturn(1);
+    var serializer = this.createSerializer();
+
+    // unknown codec id, so the entry can't be recompressed for the disk codec
+    ChunkCacheKey corruptKey = key(0, 0);
+    ChunkCacheEntry corrupt = entry(corruptKey);
+    corrupt.compressedData()[CacheRequest.HASH_LENGTH + 1] = 127;
+    serializer.write(corruptKey, corrupt);
+
+    ChunkCacheKey key = key(0, 1);
+    serializer.write(key, entry(key));
+
+    // only completes if the worker survived the corrupt entry
+    assertNull(serializer.read(key(1, 0)).get(10, TimeUnit.SECONDS));
+    serializer.close();
+
+    assertNull(this.regionFileCache.files.get(this.cacheConfig.regionFile(corruptKey)).get(corruptKey));
+    assertArrayEquals(entry(key).compressedData(), this.regionFileCache.stored(key));
+  }
+
+  /**
+   * Keeps region files in memory and records which threads wrote to them and if they got used after being closed.
+   * Writes can be held back by a gate to keep workers busy.
+   */
+  private static class MemoryRegionFileCache extends AbstractRegionFileCache<MemoryRegionFileCache.Region> {
+
+    private final Map<Path, Map<ChunkCacheKey, byte[]>> files = new ConcurrentHashMap<>();
+    private final Map<Path, Set<String>> writerThreads = new ConcurrentHashMap<>();
+
+    private volatile @Nullable CountDownLatch gate;
+    private final CountDownLatch arrived = new CountDownLatch(1);
+    private final AtomicInteger closedAccesses = new AtomicInteger();
+
+    public MemoryRegionFileCache(CacheConfig cacheConfig) {
+      super(cacheConfig);
+    }
+
+    public byte[] stored(ChunkCacheKey key) throws IOException {
+      byte[] stored = this.files.get(this.cacheConfig.regionFile(key)).get(key);
+      var inputStream = new DataInputStream(new ByteArrayInputStream(stored));
+      assertEquals(ChunkSerializer.CACHE_VERSION, inputStream.readInt());
+      assertTrue(inputStream.readBoolean());
+      return inputStream.readNBytes(inputStream.readInt());
+    }
+
+    @Override
+    protected Region createRegionFile(Path path) {
+      return new Region(path, this.files.computeIfAbsent(path, k -> new ConcurrentHashMap<>()));
+    }
+
+    @Override
+    protected void closeRegionFile(Region region) {
+      region.closed = true;
+    }
+
+    @Override
+    protected @Nullable DataInputStream createInputStream(Region region, ChunkCacheKey key) throws IOException {
+      region.checkOpen();
+      byte[] data = region.data.get(key);
+      return data != null ? new DataInputStream(new ByteArrayInputStream(data)) : null;
+    }
+
+    @Override
+    protected DataOutputStream createOutputStream(Region region, ChunkCacheKey key) throws IOException {
+      region.checkOpen();
+      this.writerThreads.computeIfAbsent(region.path, k -> ConcurrentHashMap.newKeySet())
+          .add(Thread.currentThread().getName());
+
+      CountDownLatch gate = this.gate;
+      if (gate != null) {
+        this.arrived.countDown();
+        try {
+          gate.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      return new DataOutputStream(new ByteArrayOutputStream() {
+
+        @Override
+        public void close() throws IOException {
+          region.checkOpen();
+          region.data.put(key, this.toByteArray());
+        }
+      });
+    }
+
+    private class Region {
+
+      private final Path path;
+      private final Map<ChunkCacheKey, byte[]> data;
+      private volatile boolean closed = false;
+
+      public Region(Path path, Map<ChunkCacheKey, byte[]> data) {
+        this.path = path;
+        this.data = data;
+      }
+
+      public void checkOpen() throws IOException {
+        // give concurrent evictions a chance to close this region file while it is in use
+        Thread.yield();
+        if (this.closed) {
+          closedAccesses.incrementAndGet();
+          throw new IOException("region file closed: " + this.path);
+        }
+      }
+    }
+  }
+}
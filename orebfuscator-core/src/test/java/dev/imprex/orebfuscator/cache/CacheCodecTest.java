@@ -0,0 +1,95 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.config.api.CacheCompression;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+import dev.imprex.orebfuscator.obfuscation.SectionHashes;
+import dev.imprex.orebfuscator.player.ProximityBlock;
+import dev.imprex.orebfuscator.util.BlockPos;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class CacheCodecTest {
+
+  private static byte[] data(int length) {
+    // mostly repeating content so that every codec has something to compress
+    byte[] data = new byte[length];
+    Random random = new Random(length);
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 64 == 0 ? random.nextInt() : i % 7);
+    }
+    return data;
+  }
+
+  @Test
+  void testRoundTrip() throws IOException {
+    for (CacheCompression compression : CacheCompression.values()) {
+      CacheCodec codec = CacheCodec.forCompression(compression);
+      assertSame(codec, CacheCodec.byId(codec.id()));
+
+      for (int length : new int[] { 0, 1, 100, 65536 }) {
+        byte[] data = data(length);
+
+        byte[] compressed = new byte[3 + codec.maxCompressedLength(length)];
+        int compressedLength = codec.compress(data, 0, length, compressed, 3);
+
+        byte[] decompressed = new byte[length + 2];
+        codec.decompress(compressed, 3, compressedLength, decompressed, 2, length);
+
+        assertArrayEquals(data, Arrays.copyOfRange(decompressed, 2, length + 2), compression.name());
+      }
+    }
+  }
+
+  @Test
+  void testDecompressLengthMismatch() {
+    for (CacheCompression compression : CacheCompression.values()) {
+      CacheCodec codec = CacheCodec.forCompression(compression);
+
+      byte[] data = data(100);
+      byte[] compressed = new byte[codec.maxCompressedLength(data.length)];
+      int compressedLength = assertDoesNotThrow(() -> codec.compress(data, 0, data.length, compressed, 0));
+
+      assertThrows(IOException.class, () -> codec.decompress(compressed, 0, compressedLength, new byte[50], 0, 50),
+          compression.name());
+    }
+  }
+
+  @Test
+  void testEntryWithCodec() {
+    var key = new ChunkCacheKey("world", 1, 2);
+    var request = new CacheRequest(key, new byte[CacheRequest.HASH_LENGTH]);
+
+    int[] edits = { 1 << 12 | 5, 42, 1 << 12 | 300, 7, 3 << 12 | 4095, 42 };
+    var sectionHashes = new SectionHashes(new long[] { 1, 2, 3, 4 }, new boolean[] { false, true, false, false });
+    var proximityBlocks = List.of(new ProximityBlock(new BlockPos(16, 64, 32), (byte) 1));
+    var blockEntities = Set.of(new BlockPos(17, 10, 33));
+    var response = new ObfuscationResponse(new byte[0], blockEntities, proximityBlocks, edits, sectionHashes);
+
+    ChunkCacheEntry entry = ChunkCacheEntry.create(request, response, CacheCodec.LZ4);
+    assertSame(entry, entry.withCodec(CacheCodec.LZ4));
+
+    for (CacheCompression compression : CacheCompression.values()) {
+      ChunkCacheEntry converted = entry.withCodec(CacheCodec.forCompression(compression));
+      assertEquals(entry.isValid(request), converted.isValid(request));
+
+      ObfuscationResponse previous = converted.toPreviousResult();
+      assertNotNull(previous);
+      assertArrayEquals(edits, previous.edits());
+      assertArrayEquals(sectionHashes.hashes(), previous.sectionHashes().hashes());
+      assertEquals(proximityBlocks, previous.proximityBlocks());
+      assertEquals(blockEntities, previous.blockEntities());
+    }
+  }
+}
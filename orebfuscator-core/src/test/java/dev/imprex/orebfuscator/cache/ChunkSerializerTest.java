@@ -0,0 +1,109 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+import dev.imprex.orebfuscator.obfuscation.TestWorld;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class ChunkSerializerTest {
+
+  // one version for each combination of chunk version flags
+  private static final String[] MINECRAFT_VERSIONS = { "1.16.5", "1.18.2", "1.21.5", "26.1" };
+
+  private static final int FORMAT_FULL = 0;
+  private static final int FORMAT_DELTA = 1;
+  private static final int FORMAT_FULL_WITH_EDITS = 2;
+
+  @TempDir
+  private Path tempDir;
+
+  private CacheConfig cacheConfig(String minecraftVersion) {
+    Path directory = this.tempDir.resolve(minecraftVersion);
+
+    CacheConfig cacheConfig = mock(CacheConfig.class);
+    when(cacheConfig.maximumOpenRegionFiles()).thenReturn(4);
+    when(cacheConfig.regionFile(any())).thenAnswer(invocation -> {
+      ChunkCacheKey key = invocation.getArgument(0);
+      return directory.resolve(key.world()).resolve("r." + (key.x() >> 5) + "." + (key.z() >> 5) + ".mca");
+    });
+    return cacheConfig;
+  }
+
+  private static void assertSameResult(ObfuscationResponse expected, ObfuscationResponse actual) {
+    assertArrayEquals(expected.data(), actual.data());
+    assertEquals(expected.proximityBlocks(), actual.proximityBlocks());
+    assertEquals(new HashSet<>(expected.blockEntities()), new HashSet<>(actual.blockEntities()));
+  }
+
+  @Test
+  void testFullAndDeltaEntries() throws IOException {
+    for (String minecraftVersion : MINECRAFT_VERSIONS) {
+      var world = new TestWorld(minecraftVersion);
+
+      var regionFileCache = new OrebfuscatorRegionFileCache(this.cacheConfig(minecraftVersion));
+      var serializer = new ChunkSerializer(regionFileCache, world.statistics().cache, CacheCodec.LZ4);
+      try {
+        int proximityBlocks = 0;
+        int blockEntities = 0;
+
+        for (ObfuscationRequest request : world.requests(2)) {
+          ObfuscationResponse response = world.processor().process(request, new byte[16], null);
+          proximityBlocks += response.proximityBlocks().size();
+          blockEntities += response.blockEntities().size();
+
+          byte[] hash = CacheRequest.HASH_FUNCTION.hashBytes(request.packet().data()).asBytes();
+          var cacheRequest = new CacheRequest(new ChunkCacheKey(request), hash);
+
+          // memory entries always keep the chunk data, on disk entries with edits only store their edits
+          var full = new ObfuscationResponse(response.data(), response.blockEntities(), response.proximityBlocks());
+          for (ObfuscationResponse expected : new ObfuscationResponse[] { full, response }) {
+            boolean hasEdits = expected != full;
+
+            var entry = ChunkCacheEntry.create(cacheRequest, expected, CacheCodec.NONE);
+            assertEquals(hasEdits ? FORMAT_FULL_WITH_EDITS : FORMAT_FULL,
+                entry.compressedData()[CacheRequest.HASH_LENGTH]);
+            assertFalse(entry.isDelta());
+            assertSameResult(response, entry.toResult(world.chunkFactory(), request));
+
+            serializer.write(cacheRequest.cacheKey(), entry);
+            ChunkCacheEntry stored = serializer.read(cacheRequest.cacheKey());
+            assertNotNull(stored);
+            assertTrue(stored.isValid(cacheRequest));
+            assertEquals(hasEdits ? FORMAT_DELTA : FORMAT_FULL, stored.compressedData()[CacheRequest.HASH_LENGTH]);
+            assertEquals(hasEdits, stored.isDelta());
+
+            ObfuscationResponse result = stored.toResult(world.chunkFactory(), request);
+            assertSameResult(response, result);
+
+            // both forms can be reused once the chunk changed
+            if (hasEdits) {
+              assertArrayEquals(response.edits(), entry.toPreviousResult().edits());
+              assertArrayEquals(response.edits(), stored.toPreviousResult().edits());
+            }
+          }
+        }
+
+        // make sure the terrain actually exercises both lists
+        assertTrue(proximityBlocks > 0, minecraftVersion);
+        assertTrue(blockEntities > 0, minecraftVersion);
+      } finally {
+        regionFileCache.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class MemoryCacheSnapshotTest {
+
+  private static ChunkCacheEntry entry(int x) {
+    byte[] data = new byte[10 + x];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (x + i);
+    }
+    return new ChunkCacheEntry(new ChunkCacheKey("world", x, -x), data);
+  }
+
+  @Test
+  void testRoundTrip(@TempDir Path tempDir) throws IOException {
+    Path path = MemoryCacheSnapshot.path(tempDir);
+
+    var snapshot = new MemoryCacheSnapshot(path, 3);
+    for (int x = 0; x < 5; x++) {
+      assertEquals(x < 3, snapshot.add(entry(x)));
+    }
+    snapshot.close();
+
+    assertTrue(Files.exists(path));
+
+    List<ChunkCacheEntry> entries = MemoryCacheSnapshot.read(path, 2);
+    assertEquals(2, entries.size());
+    for (int x = 0; x < entries.size(); x++) {
+      assertEquals(entry(x).key(), entries.get(x).key());
+      assertArrayEquals(entry(x).compressedData(), entries.get(x).compressedData());
+    }
+
+    // snapshots only get restored once
+    assertFalse(Files.exists(path));
+    assertEquals(0, MemoryCacheSnapshot.read(path, 2).size());
+  }
+
+  @Test
+  void testCloseWithoutFullSnapshot(@TempDir Path tempDir) throws IOException {
+    Path path = MemoryCacheSnapshot.path(tempDir.resolve("missing"));
+
+    var snapshot = new MemoryCacheSnapshot(path, 10);
+    assertTrue(snapshot.add(entry(1)));
+    snapshot.close();
+
+    List<ChunkCacheEntry> entries = MemoryCacheSnapshot.read(path, 10);
+    assertEquals(1, entries.size());
+    assertEquals(entry(1).key(), entries.get(0).key());
+  }
+}
@@ -0,0 +1,206 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
+import dev.imprex.orebfuscator.config.OrebfuscatorConfig;
+import dev.imprex.orebfuscator.config.api.CacheCompression;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.DiskCacheFormat;
+import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationResponse;
+import dev.imprex.orebfuscator.statistics.OrebfuscatorStatistics;
+import dev.imprex.orebfuscator.statistics.StatisticsRegistry;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+import dev.imprex.orebfuscator.util.concurrent.OrebfuscatorExecutor;
+
+public class ObfuscationCacheTest {
+
+  private static ChunkCacheEntry entry(int x) {
+    byte[] data = new byte[32];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (x * 31 + i);
+    }
+    // zeroed header bytes select the uncompressed codec
+    data[CacheRequest.HASH_LENGTH + 1] = 0;
+    return new ChunkCacheEntry(new ChunkCacheKey("world", x, 0), data);
+  }
+
+  @TempDir
+  private Path tempDir;
+
+  private CacheConfig cacheConfig;
+  private OrebfuscatorStatistics statistics;
+  private OrebfuscatorExecutor executor;
+  private OrebfuscatorCore orebfuscator;
+
+  @BeforeEach
+  void setup() {
+    this.cacheConfig = mock(CacheConfig.class);
+    when(this.cacheConfig.enabled()).thenReturn(true);
+    when(this.cacheConfig.maximumSize()).thenReturn(64);
+    when(this.cacheConfig.expireAfterAccess()).thenReturn(TimeUnit.HOURS.toMillis(1));
+    when(this.cacheConfig.memoryCacheCompression()).thenReturn(CacheCompression.NONE);
+    when(this.cacheConfig.memoryCacheSnapshotSize()).thenReturn(2);
+    when(this.cacheConfig.enableDiskCache()).thenReturn(true);
+    when(this.cacheConfig.diskCacheFormat()).thenReturn(DiskCacheFormat.NATIVE);
+    when(this.cacheConfig.diskCacheCompression()).thenReturn(CacheCompression.NONE);
+    when(this.cacheConfig.diskCacheThreads()).thenReturn(1);
+    when(this.cacheConfig.maximumTaskQueueSize()).thenReturn(64);
+    when(this.cacheConfig.maximumOpenRegionFiles()).thenReturn(4);
+    when(this.cacheConfig.baseDirectory()).thenReturn(this.tempDir);
+    when(this.cacheConfig.regionFile(any())).thenAnswer(invocation -> {
+      ChunkCacheKey key = invocation.getArgument(0);
+      return this.tempDir.resolve(key.world()).resolve("r." + (key.x() >> 5) + "." + (key.z() >> 5) + ".mca");
+    });
+
+    OrebfuscatorConfig config = mock(OrebfuscatorConfig.class);
+    when(config.cache()).thenReturn(this.cacheConfig);
+
+    this.statistics = new OrebfuscatorStatistics(config, mock(StatisticsRegistry.class));
+
+    this.executor = mock(OrebfuscatorExecutor.class);
+    doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(this.executor).execute(any());
+
+    this.orebfuscator = mock(OrebfuscatorCore.class);
+    when(this.orebfuscator.config()).thenReturn(config);
+    when(this.orebfuscator.statistics()).thenReturn(this.statistics);
+    when(this.orebfuscator.executor()).thenReturn(this.executor);
+    when(this.orebfuscator.chunkFactory()).thenReturn(mock(ChunkFactory.class));
+  }
+
+  private void writeSnapshot(int size) {
+    var snapshot = new MemoryCacheSnapshot(MemoryCacheSnapshot.path(this.tempDir), size);
+    for (int x = 0; x < size; x++) {
+      snapshot.add(entry(x));
+    }
+    snapshot.close();
+  }
+
+  private long memoryCacheEntryCount() {
+    Map<String, String> values = new HashMap<>();
+    this.statistics.cache.debug(values::put);
+    return Long.parseLong(values.get("memoryCacheEntryCount"));
+  }
+
+  private static final List<ChunkCacheKey> KEYS = List.of(entry(0).key(), entry(1).key(), entry(2).key());
+
+  /**
+   * Returns a cache holding three entries, two of them restored from a snapshot, while the snapshot size is two.
+   */
+  private ObfuscationCache cacheWithThreeEntries() {
+    this.writeSnapshot(2);
+
+    var cache = new ObfuscationCache(this.orebfuscator);
+    var response = new ObfuscationResponse(new byte[] { 1, 2, 3 }, Set.of(), List.of());
+    cache.add(new CacheRequest(KEYS.get(2), new byte[CacheRequest.HASH_LENGTH]), response);
+    assertEquals(3, this.memoryCacheEntryCount());
+    return cache;
+  }
+
+  private Set<ChunkCacheKey> keysOnDisk() throws IOException {
+    var regionFileCache = new OrebfuscatorRegionFileCache(this.cacheConfig);
+    var serializer = new ChunkSerializer(regionFileCache, this.statistics.cache, CacheCodec.NONE);
+    try {
+      Set<ChunkCacheKey> result = new HashSet<>();
+      for (ChunkCacheKey key : KEYS) {
+        if (serializer.read(key) != null) {
+          result.add(key);
+        }
+      }
+      return result;
+    } finally {
+      regionFileCache.clear();
+    }
+  }
+
+  @Test
+  void testSnapshotEntriesSkipDisk() throws IOException {
+    this.cacheWithThreeEntries().close();
+
+    // the snapshot is full after the two hottest entries, only the remaining one gets written to disk
+    Set<ChunkCacheKey> inSnapshot = new HashSet<>();
+    for (ChunkCacheEntry entry : MemoryCacheSnapshot.read(MemoryCacheSnapshot.path(this.tempDir), 2)) {
+      inSnapshot.add(entry.key());
+    }
+    assertEquals(2, inSnapshot.size());
+
+    Set<ChunkCacheKey> onDisk = this.keysOnDisk();
+    assertEquals(1, onDisk.size());
+    assertTrue(Collections.disjoint(inSnapshot, onDisk));
+  }
+
+  @Test
+  void testEntriesOfFailedSnapshotGetWrittenToDisk() throws IOException {
+    var cache = this.cacheWithThreeEntries();
+
+    // a non-empty directory in place of the snapshot can't be replaced
+    Path snapshotPath = MemoryCacheSnapshot.path(this.tempDir);
+    Files.createDirectories(snapshotPath);
+    Files.writeString(snapshotPath.resolve("blocker"), "");
+    cache.close();
+
+    assertTrue(Files.isDirectory(snapshotPath));
+    assertEquals(new HashSet<>(KEYS), this.keysOnDisk());
+  }
+
+  @Test
+  void testRequestsWaitForSnapshotRestore() throws Exception {
+    this.writeSnapshot(1);
+
+    // the restore is the first task, hold it back on its own thread
+    CountDownLatch restore = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      Runnable runnable = invocation.getArgument(0);
+      new Thread(() -> {
+        try {
+          restore.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        runnable.run();
+      }).start();
+      return null;
+    }).doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(this.executor).execute(any());
+
+    var cache = new ObfuscationCache(this.orebfuscator);
+
+    // a different hash makes the restored entry invalid, which removes it from memory once it got probed
+    var request = new CacheRequest(entry(0).key(), new byte[CacheRequest.HASH_LENGTH]);
+    var lookup = cache.get(request, mock(ObfuscationRequest.class)).toCompletableFuture();
+    assertFalse(lookup.isDone());
+
+    restore.countDown();
+    assertEquals(CacheLookup.MISS, lookup.get(10, TimeUnit.SECONDS));
+    assertEquals(0, this.memoryCacheEntryCount());
+
+    cache.close();
+  }
+}
@@ -0,0 +1,94 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.Config;
+import dev.imprex.orebfuscator.statistics.CacheStatistics;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class OffHeapMemoryCacheTest {
+
+  private static ChunkCacheEntry entry(int x, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (x + i);
+    }
+    return new ChunkCacheEntry(new ChunkCacheKey("world", x, 0), data);
+  }
+
+  private CacheConfig cacheConfig;
+  private CacheStatistics statistics;
+
+  @BeforeEach
+  void setup() {
+    this.cacheConfig = mock(CacheConfig.class);
+    when(this.cacheConfig.maximumBytes()).thenReturn(4096L);
+    when(this.cacheConfig.expireAfterAccess()).thenReturn(TimeUnit.MINUTES.toMillis(1));
+
+    Config config = mock(Config.class);
+    when(config.cache()).thenReturn(this.cacheConfig);
+    this.statistics = new CacheStatistics(config);
+  }
+
+  private long memoryCacheByteSize() {
+    Map<String, String> values = new HashMap<>();
+    this.statistics.debug(values::put);
+    return Long.parseLong(values.get("memoryCacheByteSize"));
+  }
+
+  @Test
+  void testGetReturnsCopy() {
+    var cache = new OffHeapMemoryCache(this.cacheConfig, this.statistics, entry -> {});
+    ChunkCacheEntry entry = entry(1, 100);
+
+    cache.put(entry);
+    assertEquals(100, memoryCacheByteSize());
+
+    ChunkCacheEntry cachedEntry = cache.get(entry.key());
+    assertNotNull(cachedEntry);
+    assertEquals(entry.key(), cachedEntry.key());
+    assertArrayEquals(entry.compressedData(), cachedEntry.compressedData());
+
+    cache.invalidate(entry.key());
+    assertNull(cache.get(entry.key()));
+    assertEquals(0, memoryCacheByteSize());
+  }
+
+  @Test
+  void testByteSizeBound() {
+    List<ChunkCacheEntry> evicted = new ArrayList<>();
+    var cache = new OffHeapMemoryCache(this.cacheConfig, this.statistics, evicted::add);
+
+    for (int x = 0; x < 16; x++) {
+      cache.put(entry(x, 1000));
+    }
+
+    assertTrue(memoryCacheByteSize() <= 4096, "memory cache exceeded its byte bound");
+    assertEquals(16, evicted.size() + cache.size());
+
+    for (ChunkCacheEntry entry : evicted) {
+      assertArrayEquals(entry(entry.key().x(), 1000).compressedData(), entry.compressedData());
+    }
+
+    List<ChunkCacheEntry> drained = new ArrayList<>();
+    cache.drain(drained::add);
+
+    assertEquals(16, evicted.size() + drained.size());
+    assertEquals(0, cache.size());
+    assertEquals(0, memoryCacheByteSize());
+  }
+}
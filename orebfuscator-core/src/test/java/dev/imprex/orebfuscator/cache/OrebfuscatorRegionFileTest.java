@@ -0,0 +1,142 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OrebfuscatorRegionFileTest {
+
+  private static byte[] randomData(Random random, int length) {
+    byte[] data = new byte[length];
+    random.nextBytes(data);
+    return data;
+  }
+
+  @Test
+  void testRoundTrip(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("r.0.0.ofc");
+    Random random = new Random(1337);
+
+    byte[] dataA = randomData(random, 3000);
+    byte[] dataB = randomData(random, 1);
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      assertNull(regionFile.read(0, 0));
+
+      regionFile.write(0, 0, dataA, dataA.length);
+      regionFile.write(-1, 31, dataB, dataB.length);
+
+      assertArrayEquals(dataA, regionFile.read(0, 0));
+      assertArrayEquals(dataB, regionFile.read(-1, 31));
+      assertNull(regionFile.read(1, 0));
+    }
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      assertArrayEquals(dataA, regionFile.read(0, 0));
+      assertArrayEquals(dataB, regionFile.read(-1, 31));
+    }
+  }
+
+  @Test
+  void testOverwriteReusesSectors(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("r.0.0.ofc");
+    Random random = new Random(1337);
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      for (int i = 0; i < 64; i++) {
+        byte[] data = randomData(random, 2000 + random.nextInt(4000));
+        regionFile.write(i & 3, 0, data, data.length);
+        assertArrayEquals(data, regionFile.read(i & 3, 0));
+      }
+    }
+
+    long maximumSize = (long) (OrebfuscatorRegionFile.HEADER_SECTORS
+        + 8 * OrebfuscatorRegionFile.sectorCount(6000)) * OrebfuscatorRegionFile.SECTOR_SIZE;
+    assertTrue(Files.size(path) <= maximumSize, "region file didn't reuse freed sectors");
+  }
+
+  @Test
+  void testRemapOnlyAfterThreshold(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("r.0.0.ofc");
+    Random random = new Random(1337);
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      byte[] first = randomData(random, 1000);
+      regionFile.write(0, 0, first, first.length);
+      assertArrayEquals(first, regionFile.read(0, 0));
+
+      long mappedSize = regionFile.mappedSize();
+      assertEquals(Files.size(path), mappedSize);
+
+      // entries past the mapping get read through the channel
+      int index = 1;
+      byte[] data = randomData(random, 8000);
+      regionFile.write(index & 31, index >> 5, data, data.length);
+      while (Files.size(path) - mappedSize < OrebfuscatorRegionFile.REMAP_THRESHOLD) {
+        assertArrayEquals(data, regionFile.read(index & 31, index >> 5));
+        assertEquals(mappedSize, regionFile.mappedSize());
+
+        index++;
+        data = randomData(random, 8000);
+        regionFile.write(index & 31, index >> 5, data, data.length);
+      }
+
+      // until the file outgrew the mapping by the threshold
+      assertArrayEquals(data, regionFile.read(index & 31, index >> 5));
+      assertEquals(Files.size(path), regionFile.mappedSize());
+      assertArrayEquals(first, regionFile.read(0, 0));
+    }
+  }
+
+  @Test
+  void testInvalidEntryChecksum(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("r.0.0.ofc");
+    byte[] data = randomData(new Random(1337), 1000);
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      regionFile.write(4, 2, data, data.length);
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      long position = file.length() - 10;
+      file.seek(position);
+      int value = file.read();
+      file.seek(position);
+      file.write(value ^ 0xFF);
+    }
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      assertNull(regionFile.read(4, 2));
+    }
+  }
+
+  @Test
+  void testInvalidHeader(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("r.0.0.ofc");
+    byte[] data = randomData(new Random(1337), 1000);
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      regionFile.write(4, 2, data, data.length);
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(16);
+      file.write(0xFF);
+    }
+
+    try (var regionFile = new OrebfuscatorRegionFile(path)) {
+      assertNull(regionFile.read(4, 2));
+    }
+    assertTrue(Files.size(path) <= OrebfuscatorRegionFile.HEADER_SECTORS * OrebfuscatorRegionFile.SECTOR_SIZE,
+        "region file didn't get reset");
+  }
+}
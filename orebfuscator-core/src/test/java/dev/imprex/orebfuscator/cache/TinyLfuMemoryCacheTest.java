@@ -0,0 +1,147 @@
+package dev.imprex.orebfuscator.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.Config;
+import dev.imprex.orebfuscator.statistics.CacheStatistics;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class TinyLfuMemoryCacheTest {
+
+  private static final int ENTRY_LENGTH = 1000;
+
+  private static ChunkCacheEntry entry(int x, int z) {
+    return new ChunkCacheEntry(new ChunkCacheKey("world", x, z), new byte[ENTRY_LENGTH]);
+  }
+
+  private CacheConfig cacheConfig;
+  private CacheStatistics statistics;
+
+  @BeforeEach
+  void setup() {
+    this.cacheConfig = mock(CacheConfig.class);
+    when(this.cacheConfig.maximumSize()).thenReturn(100);
+    when(this.cacheConfig.maximumBytes()).thenReturn(100L * entry(0, 0).estimatedSize());
+    when(this.cacheConfig.expireAfterAccess()).thenReturn(TimeUnit.MINUTES.toMillis(1));
+
+    Config config = mock(Config.class);
+    when(config.cache()).thenReturn(this.cacheConfig);
+    this.statistics = new CacheStatistics(config);
+  }
+
+  private long memoryCacheByteSize() {
+    Map<String, String> values = new HashMap<>();
+    this.statistics.debug(values::put);
+    return Long.parseLong(values.get("memoryCacheByteSize"));
+  }
+
+  @Test
+  void testGetPutInvalidate() {
+    var cache = new TinyLfuMemoryCache(this.cacheConfig, this.statistics, entry -> {});
+    ChunkCacheEntry entry = entry(3, -7);
+
+    assertNull(cache.get(entry.key()));
+
+    cache.put(entry);
+    assertSame(entry, cache.get(entry.key()));
+    assertEquals(1, cache.size());
+    assertEquals(entry.estimatedSize(), memoryCacheByteSize());
+
+    ChunkCacheEntry replacement = entry(3, -7);
+    cache.put(replacement);
+    assertSame(replacement, cache.get(entry.key()));
+    assertEquals(1, cache.size());
+
+    cache.invalidate(entry.key());
+    assertNull(cache.get(entry.key()));
+    assertEquals(0, cache.size());
+    assertEquals(0, memoryCacheByteSize());
+  }
+
+  @Test
+  void testWeightBound() {
+    List<ChunkCacheEntry> evicted = new ArrayList<>();
+    var cache = new TinyLfuMemoryCache(this.cacheConfig, this.statistics, evicted::add);
+
+    for (int x = 0; x < 1000; x++) {
+      cache.put(entry(x, 0));
+    }
+
+    assertTrue(memoryCacheByteSize() <= this.cacheConfig.maximumBytes(), "memory cache exceeded its weight bound");
+    assertEquals(1000, evicted.size() + cache.size());
+
+    List<ChunkCacheEntry> drained = new ArrayList<>();
+    cache.drain(drained::add);
+
+    assertEquals(1000, evicted.size() + drained.size());
+    assertEquals(0, cache.size());
+    assertEquals(0, memoryCacheByteSize());
+  }
+
+  @Test
+  void testFrequentEntriesSurviveScan() {
+    var cache = new TinyLfuMemoryCache(this.cacheConfig, this.statistics, entry -> {});
+
+    for (int x = 0; x < 50; x++) {
+      cache.put(entry(x, 0));
+    }
+
+    // stream of chunks that only get requested once while the frequent entries keep getting requested, with 60 new
+    // entries in between LRU would evict the least recently requested frequent entries every time
+    for (int z = 1; z < 1020; z++) {
+      if (z % 60 == 0) {
+        for (int x = 0; x < 50; x++) {
+          if (cache.get(entry(x, 0).key()) == null) {
+            cache.put(entry(x, 0));
+          }
+        }
+      }
+
+      ChunkCacheEntry entry = entry(0, z);
+      cache.get(entry.key());
+      cache.put(entry);
+    }
+
+    int misses = 0;
+    for (int x = 0; x < 50; x++) {
+      if (cache.get(entry(x, 0).key()) == null) {
+        misses++;
+      }
+    }
+    assertTrue(misses <= 1, "frequent entries got evicted by scan: " + misses);
+  }
+
+  @Test
+  void testDrainHottestFirst() {
+    var cache = new TinyLfuMemoryCache(this.cacheConfig, this.statistics, entry -> {});
+
+    for (int x = 0; x < 3; x++) {
+      cache.put(entry(x, 0));
+    }
+
+    for (int i = 0; i < 5; i++) {
+      cache.get(entry(1, 0).key());
+    }
+    cache.get(entry(2, 0).key());
+
+    List<ChunkCacheEntry> drained = new ArrayList<>();
+    cache.drain(drained::add);
+
+    assertEquals(List.of(entry(1, 0).key(), entry(2, 0).key(), entry(0, 0).key()),
+        drained.stream().map(ChunkCacheEntry::key).toList());
+  }
+}
@@ -0,0 +1,94 @@
+package dev.imprex.orebfuscator.chunk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.interop.RegistryAccessor;
+import dev.imprex.orebfuscator.interop.ServerAccessor;
+import dev.imprex.orebfuscator.util.Version;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ChunkSectionTest {
+
+  static final int MAX_BITS_PER_BLOCK_STATE = 15;
+
+  /**
+   * Creates a chunk factory for the given minecraft version with a registry in which only block state 0 is air.
+   */
+  static ChunkFactory chunkFactory(String minecraftVersion) {
+    RegistryAccessor registry = mock(RegistryAccessor.class);
+    when(registry.getMaxBitsPerBlockState()).thenReturn(MAX_BITS_PER_BLOCK_STATE);
+    when(registry.isAir(anyInt())).thenAnswer(invocation -> invocation.<Integer>getArgument(0) == 0);
+
+    ServerAccessor serverAccessor = mock(ServerAccessor.class);
+    when(serverAccessor.registry()).thenReturn(registry);
+    when(serverAccessor.minecraftVersion()).thenReturn(Version.parse(minecraftVersion));
+
+    return new ChunkFactory(serverAccessor);
+  }
+
+  private static int bitsPerBlock(ChunkSection section) {
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      section.write(buffer);
+      return buffer.getUnsignedByte(2);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  void testExpectedBlockStatesStayIndirect() {
+    ChunkSection section = new ChunkSection(chunkFactory("1.21.5"));
+    section.setExpectedBlockStates(IntStream.range(1, 400).toArray());
+
+    // a mostly uniform section must not get pre-sized into the direct palette
+    section.setBlockState(0, 1);
+    assertEquals(8, bitsPerBlock(section));
+
+    for (int index = 1; index < 4096; index++) {
+      assertEquals(0, section.getBlockState(index));
+    }
+    assertEquals(1, section.getBlockState(0));
+  }
+
+  @Test
+  void testPaletteOverflowGrowsDirect() {
+    ChunkSection section = new ChunkSection(chunkFactory("1.21.5"));
+    section.setExpectedBlockStates(IntStream.range(1, 400).toArray());
+
+    for (int index = 0; index < 300; index++) {
+      section.setBlockState(index, index + 1);
+    }
+    assertEquals(MAX_BITS_PER_BLOCK_STATE, bitsPerBlock(section));
+
+    for (int index = 0; index < 4096; index++) {
+      assertEquals(index < 300 ? index + 1 : 0, section.getBlockState(index));
+    }
+  }
+
+  @Test
+  void testCompactShrinksPalette() {
+    ChunkSection section = new ChunkSection(chunkFactory("1.21.5"));
+    // 63 block states plus air fill a 6 bit palette
+    for (int index = 0; index < 63; index++) {
+      section.setBlockState(index, index + 1);
+    }
+    assertEquals(6, bitsPerBlock(section));
+
+    for (int index = 0; index < 63; index++) {
+      section.setBlockState(index, index % 2 + 1);
+    }
+    section.compact();
+    assertEquals(4, bitsPerBlock(section));
+
+    for (int index = 0; index < 4096; index++) {
+      assertEquals(index < 63 ? index % 2 + 1 : 0, section.getBlockState(index));
+    }
+  }
+}
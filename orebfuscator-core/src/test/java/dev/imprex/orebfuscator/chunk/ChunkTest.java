@@ -0,0 +1,193 @@
+package dev.imprex.orebfuscator.chunk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.interop.ChunkPacketAccessor;
+import dev.imprex.orebfuscator.interop.PlayerAccessor;
+import dev.imprex.orebfuscator.interop.WorldAccessor;
+import dev.imprex.orebfuscator.obfuscation.ObfuscationRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class ChunkTest {
+
+  private static final int SECTION_COUNT = 8;
+  private static final int ABSENT_SECTION = 5;
+
+  // block entities and everything else after the sections
+  private static final byte[] TRAILER = { 1, 2, 3, 4, 5 };
+
+  /**
+   * Returns the block state of the given section at the given index, sections cover a single value, small, medium and
+   * direct palettes.
+   */
+  private static int blockState(int sectionIndex, int index) {
+    return switch (sectionIndex % 4) {
+      case 0 -> 0;
+      case 1 -> index % 3;
+      case 2 -> index % 50;
+      default -> index % 300;
+    };
+  }
+
+  private static ObfuscationRequest request(byte[] data) {
+    ChunkPacketAccessor packet = mock(ChunkPacketAccessor.class);
+    when(packet.data()).thenReturn(data);
+    when(packet.isSectionPresent(anyInt()))
+        .thenAnswer(invocation -> invocation.<Integer>getArgument(0) != ABSENT_SECTION);
+
+    WorldAccessor world = mock(WorldAccessor.class);
+    when(world.sectionCount()).thenReturn(SECTION_COUNT);
+
+    return new ObfuscationRequest(world, mock(PlayerAccessor.class), packet, null);
+  }
+
+  /**
+   * Sections created from scratch have an empty palette before 1.18, so we instead read an air-only section.
+   */
+  private static ChunkSection emptySection(ChunkFactory factory) {
+    ChunkVersionFlags versionFlags = factory.versionFlags();
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      buffer.writeShort(0);
+      if (versionFlags.hasFluidCount()) {
+        buffer.writeShort(0);
+      }
+
+      int dataLength = 0;
+      if (versionFlags.hasSingleValuePalette()) {
+        buffer.writeByte(0);
+        ByteBufUtil.writeVarInt(buffer, 0);
+      } else {
+        buffer.writeByte(4);
+        ByteBufUtil.writeVarInt(buffer, 1);
+        ByteBufUtil.writeVarInt(buffer, 0);
+        dataLength = 4096 * 4 / Long.SIZE;
+      }
+
+      if (versionFlags.hasLongArrayLengthField()) {
+        ByteBufUtil.writeVarInt(buffer, dataLength);
+      }
+      buffer.writeZero(dataLength * Long.BYTES);
+
+      ChunkSection section = new ChunkSection(factory);
+      section.read(buffer);
+      return section;
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static byte[] createPacketData(ChunkFactory factory) {
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      for (int sectionIndex = 0; sectionIndex < SECTION_COUNT; sectionIndex++) {
+        if (sectionIndex == ABSENT_SECTION) {
+          continue;
+        }
+
+        ChunkSection section = emptySection(factory);
+        for (int index = 0; index < 4096; index++) {
+          section.setBlockState(index, blockState(sectionIndex, index));
+        }
+        section.write(buffer);
+
+        if (factory.versionFlags().hasBiomePalettedContainer()) {
+          // single value biome container
+          buffer.writeByte(0);
+          ByteBufUtil.writeVarInt(buffer, sectionIndex);
+          if (factory.versionFlags().hasLongArrayLengthField()) {
+            ByteBufUtil.writeVarInt(buffer, 0);
+          }
+        }
+      }
+      buffer.writeBytes(TRAILER);
+
+      byte[] data = new byte[buffer.readableBytes()];
+      buffer.readBytes(data);
+      return data;
+    } finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  void testFinalizeOutput() {
+    // one version for each combination of chunk version flags that changes the section format
+    for (String minecraftVersion : new String[] { "1.16.5", "1.18.2", "1.21.5", "26.1" }) {
+      this.testFinalizeOutput(minecraftVersion);
+    }
+  }
+
+  private void testFinalizeOutput(String minecraftVersion) {
+    ChunkFactory factory = ChunkSectionTest.chunkFactory(minecraftVersion);
+    byte[] data = createPacketData(factory);
+
+    byte[] output;
+    int expectedSize = TRAILER.length;
+    try (Chunk chunk = factory.fromPacket(request(data))) {
+      for (int sectionIndex = 0; sectionIndex < SECTION_COUNT; sectionIndex++) {
+        if (sectionIndex == ABSENT_SECTION) {
+          assertNull(chunk.getSection(sectionIndex));
+          continue;
+        }
+
+        // modify every other section, the others only get decoded or not touched at all
+        if (sectionIndex % 2 == 1) {
+          ChunkSection section = chunk.getSection(sectionIndex);
+          section.setBlockState(0, 1000 + sectionIndex);
+        } else if (sectionIndex % 4 == 2) {
+          chunk.getSectionData(sectionIndex);
+        }
+      }
+
+      output = chunk.finalizeOutput();
+
+      for (int sectionIndex = 0; sectionIndex < SECTION_COUNT; sectionIndex++) {
+        if (sectionIndex == ABSENT_SECTION) {
+          continue;
+        }
+
+        ChunkSection section = chunk.getSection(sectionIndex);
+        expectedSize += section.isModified()
+            ? section.getSerializedSize()
+            : chunk.getSectionBytes(sectionIndex).remaining();
+
+        if (factory.versionFlags().hasBiomePalettedContainer()) {
+          expectedSize += 2 + (factory.versionFlags().hasLongArrayLengthField() ? 1 : 0);
+        }
+      }
+    }
+
+    assertEquals(expectedSize, output.length, minecraftVersion);
+
+    // the output has to decode to the modified block states
+    try (Chunk chunk = factory.fromPacket(request(output))) {
+      for (int sectionIndex = 0; sectionIndex < SECTION_COUNT; sectionIndex++) {
+        if (sectionIndex == ABSENT_SECTION) {
+          continue;
+        }
+
+        int[] expected = new int[4096];
+        for (int index = 0; index < 4096; index++) {
+          expected[index] = blockState(sectionIndex, index);
+        }
+        if (sectionIndex % 2 == 1) {
+          expected[0] = 1000 + sectionIndex;
+        }
+
+        assertArrayEquals(expected, chunk.getSectionData(sectionIndex), minecraftVersion + " section " + sectionIndex);
+      }
+
+      byte[] trailer = new byte[TRAILER.length];
+      System.arraycopy(output, output.length - TRAILER.length, trailer, 0, TRAILER.length);
+      assertArrayEquals(TRAILER, trailer);
+    }
+  }
+}
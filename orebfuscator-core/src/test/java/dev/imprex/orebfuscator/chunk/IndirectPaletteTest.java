@@ -0,0 +1,147 @@
+package dev.imprex.orebfuscator.chunk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class IndirectPaletteTest {
+
+  private static void readPalette(IndirectPalette palette, int... values) {
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      ByteBufUtil.writeVarInt(buffer, values.length);
+      for (int value : values) {
+        ByteBufUtil.writeVarInt(buffer, value);
+      }
+      palette.read(buffer);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Fills the palette up to its capacity and checks that ids stay stable until it has to grow.
+   */
+  private static void testIdFor(int bitsPerValue) {
+    ChunkSection section = mock(ChunkSection.class);
+    var palette = new IndirectPalette(bitsPerValue, section);
+
+    int capacity = 1 << bitsPerValue;
+    for (int id = 0; id < capacity; id++) {
+      assertTrue(palette.canHold(id << 12));
+      assertEquals(id, palette.idFor(id << 12));
+    }
+    assertEquals(capacity, palette.size());
+
+    // known values keep their id
+    for (int id = 0; id < capacity; id++) {
+      assertEquals(id, palette.idFor(id << 12));
+      assertEquals(id << 12, palette.valueFor(id));
+      assertTrue(palette.canHold(id << 12));
+    }
+    verify(section, never()).grow(anyInt(), anyInt());
+
+    // a full palette can't hold new values and has to grow
+    assertFalse(palette.canHold(1));
+    when(section.grow(bitsPerValue + 1, 1)).thenReturn(capacity);
+    assertEquals(capacity, palette.idFor(1));
+    verify(section).grow(bitsPerValue + 1, 1);
+  }
+
+  @Test
+  void testIdForLinearScan() {
+    testIdFor(4);
+  }
+
+  @Test
+  void testIdForOpenAddressing() {
+    testIdFor(5);
+    testIdFor(8);
+  }
+
+  @Test
+  void testReadKeepsFirstIdOfDuplicates() {
+    for (int bitsPerValue : new int[] { 4, 8 }) {
+      var palette = new IndirectPalette(bitsPerValue, mock(ChunkSection.class));
+      readPalette(palette, 7, 3, 7, 9, 3);
+
+      assertEquals(5, palette.size());
+      assertEquals(0, palette.idFor(7));
+      assertEquals(1, palette.idFor(3));
+      assertEquals(3, palette.idFor(9));
+      assertEquals(5, palette.size());
+
+      // duplicates still resolve to their value
+      assertEquals(7, palette.valueFor(2));
+      assertEquals(3, palette.valueFor(4));
+
+      // new values get appended after the duplicates
+      assertEquals(5, palette.idFor(11));
+      assertEquals(11, palette.valueFor(5));
+    }
+  }
+
+  @Test
+  void testReadReplacesPreviousContent() {
+    for (int bitsPerValue : new int[] { 4, 8 }) {
+      var palette = new IndirectPalette(bitsPerValue, mock(ChunkSection.class));
+      readPalette(palette, 1, 2, 3);
+      readPalette(palette, 4);
+
+      assertEquals(1, palette.size());
+      assertEquals(0, palette.idFor(4));
+
+      // values of the previous content must not resolve to their old ids
+      assertEquals(1, palette.idFor(2));
+      assertEquals(2, palette.idFor(1));
+      assertEquals(3, palette.size());
+    }
+  }
+
+  @Test
+  void testCanHold() {
+    var palette = new IndirectPalette(4, mock(ChunkSection.class));
+    readPalette(palette, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14);
+
+    // one free slot left
+    assertTrue(palette.canHold(100));
+    assertEquals(15, palette.idFor(100));
+
+    assertTrue(palette.canHold(100));
+    assertTrue(palette.canHold(0));
+    assertFalse(palette.canHold(101));
+  }
+
+  @Test
+  void testValuesFor() {
+    for (int bitsPerValue : new int[] { 4, 8 }) {
+      var palette = new IndirectPalette(bitsPerValue, mock(ChunkSection.class));
+      readPalette(palette, 10, 20, 30);
+
+      int[] ids = { 2, 0, 1, 1, 2, 0 };
+      palette.valuesFor(ids, 4);
+      // only the given number of ids get replaced
+      assertArrayEquals(new int[] { 30, 10, 20, 20, 2, 0 }, ids);
+
+      for (int id = 0; id < palette.size(); id++) {
+        int[] single = { id };
+        palette.valuesFor(single, 1);
+        assertEquals(palette.valueFor(id), single[0]);
+      }
+
+      assertThrows(IndexOutOfBoundsException.class, () -> palette.valuesFor(new int[] { 3 }, 1));
+      assertThrows(IndexOutOfBoundsException.class, () -> palette.valueFor(3));
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package dev.imprex.orebfuscator.chunk;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SimpleVarBitBufferTest {
+
+  private static int[] sizes(int bitsPerEntry) {
+    int entriesPerLong = 64 / bitsPerEntry;
+    // full sections plus sizes that end exactly on, right after and right before a long boundary
+    return new int[] { 4096, 4095, 1, entriesPerLong - 1, entriesPerLong, entriesPerLong + 1, 3 * entriesPerLong + 2 };
+  }
+
+  private static int[] randomValues(Random random, int length, int bitsPerEntry) {
+    int[] values = new int[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = random.nextInt(1 << bitsPerEntry);
+    }
+    return values;
+  }
+
+  @Test
+  void testSetAllMatchesSet() {
+    Random random = new Random(0);
+    for (int bitsPerEntry = 1; bitsPerEntry <= 15; bitsPerEntry++) {
+      for (int size : sizes(bitsPerEntry)) {
+        int[] values = randomValues(random, size, bitsPerEntry);
+
+        var bulk = new SimpleVarBitBuffer(bitsPerEntry, size);
+        // overwrite previous content including the padding of the last long
+        bulk.setAll(randomValues(random, size, bitsPerEntry));
+        bulk.setAll(values);
+
+        var scalar = new SimpleVarBitBuffer(bitsPerEntry, size);
+        for (int i = 0; i < size; i++) {
+          scalar.set(i, values[i]);
+        }
+
+        assertArrayEquals(scalar.toArray(), bulk.toArray(), "bitsPerEntry=" + bitsPerEntry + ", size=" + size);
+      }
+    }
+  }
+
+  @Test
+  void testGetAllMatchesGet() {
+    Random random = new Random(1);
+    for (int bitsPerEntry = 1; bitsPerEntry <= 15; bitsPerEntry++) {
+      for (int size : sizes(bitsPerEntry)) {
+        var buffer = new SimpleVarBitBuffer(bitsPerEntry, size);
+        int[] values = randomValues(random, size, bitsPerEntry);
+        for (int i = 0; i < size; i++) {
+          buffer.set(i, values[i]);
+        }
+
+        // entries past size must stay untouched
+        int[] result = new int[size + 8];
+        result[size] = -1;
+        buffer.getAll(result);
+
+        for (int i = 0; i < size; i++) {
+          assertEquals(buffer.get(i), result[i], "bitsPerEntry=" + bitsPerEntry + ", size=" + size + ", index=" + i);
+        }
+        assertEquals(-1, result[size]);
+      }
+    }
+  }
+
+  @Test
+  void testSetAllMasksValues() {
+    for (int bitsPerEntry = 1; bitsPerEntry <= 15; bitsPerEntry++) {
+      int[] values = new int[4096];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = i * 0x9E3779B9;
+      }
+
+      var bulk = new SimpleVarBitBuffer(bitsPerEntry, values.length);
+      bulk.setAll(values);
+
+      var scalar = new SimpleVarBitBuffer(bitsPerEntry, values.length);
+      for (int i = 0; i < values.length; i++) {
+        scalar.set(i, values[i]);
+      }
+
+      assertArrayEquals(scalar.toArray(), bulk.toArray(), "bitsPerEntry=" + bitsPerEntry);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package dev.imprex.orebfuscator.obfuscation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import dev.imprex.orebfuscator.cache.CacheRequest;
+import dev.imprex.orebfuscator.cache.ChunkCacheEntry;
+import dev.imprex.orebfuscator.chunk.Chunk;
+import dev.imprex.orebfuscator.util.ChunkCacheKey;
+
+public class ObfuscationProcessorTest {
+
+  // one version for each combination of chunk version flags
+  private static final String[] MINECRAFT_VERSIONS = { "1.16.5", "1.18.2", "1.21.5", "26.1" };
+
+  // block state that never gets picked by the obfuscation, so replayed edits can be told apart from new ones
+  private static final int MARKER = TestWorld.UNUSED;
+
+  private static final byte[] SECTION_HASH_SEED = new byte[16];
+
+  /**
+   * Maps every edited position (section index and block index) to its block state.
+   */
+  private static Map<Integer, Integer> edits(ObfuscationResponse response) {
+    int[] edits = response.edits();
+    assertNotNull(edits);
+
+    Map<Integer, Integer> result = new HashMap<>();
+    for (int i = 0; i < edits.length; i += 2) {
+      result.put(edits[i], edits[i + 1]);
+    }
+    return result;
+  }
+
+  private static ObfuscationResponse withMarkedEdits(ObfuscationResponse response) {
+    int[] edits = response.edits().clone();
+    for (int i = 1; i < edits.length; i += 2) {
+      edits[i] = MARKER;
+    }
+    return new ObfuscationResponse(response.data(), response.blockEntities(), response.proximityBlocks(), edits,
+        response.sectionHashes());
+  }
+
+  @Test
+  void testReuseUnchangedSections() {
+    Random random = new Random(0);
+    int reusedSections = 0;
+    int dependsOnBelowSections = 0;
+
+    for (String minecraftVersion : MINECRAFT_VERSIONS) {
+      var world = new TestWorld(minecraftVersion);
+      var processor = world.processor();
+
+      for (ObfuscationRequest request : world.requests(2)) {
+        // previous results only come from the cache, so go through a cache entry as well
+        byte[] hash = CacheRequest.HASH_FUNCTION.hashBytes(request.packet().data()).asBytes();
+        var cacheRequest = new CacheRequest(new ChunkCacheKey(request), hash);
+        ObfuscationResponse previous = ChunkCacheEntry
+            .create(cacheRequest, processor.process(request, SECTION_HASH_SEED, null))
+            .toPreviousResult();
+        assertNotNull(previous);
+        SectionHashes previousHashes = previous.sectionHashes();
+
+        // change a single block in one section
+        int changedSection;
+        byte[] data;
+        try (Chunk chunk = world.chunkFactory().fromPacket(request)) {
+          do {
+            changedSection = random.nextInt(chunk.getSectionCount());
+          } while (chunk.getSection(changedSection) == null);
+
+          int index = random.nextInt(4096);
+          int blockState = chunk.getSectionData(changedSection)[index];
+          chunk.getSection(changedSection).setBlockState(index,
+              blockState == TestWorld.STONE ? TestWorld.DIAMOND_ORE : TestWorld.STONE);
+          data = chunk.finalizeOutput();
+        }
+        ObfuscationRequest modifiedRequest = world.withData(request, data);
+
+        ObfuscationResponse fresh = processor.process(modifiedRequest, SECTION_HASH_SEED, null);
+        ObfuscationResponse partial = processor.process(modifiedRequest, SECTION_HASH_SEED, previous);
+        ObfuscationResponse marked = processor.process(modifiedRequest, SECTION_HASH_SEED, withMarkedEdits(previous));
+
+        // only the changed section and the ones next to it or depending on it get obfuscated again
+        Map<Integer, Integer> previousEdits = edits(previous);
+        for (Map.Entry<Integer, Integer> edit : edits(marked).entrySet()) {
+          int sectionIndex = edit.getKey() >>> 12;
+          boolean recomputed = sectionIndex >= changedSection - 1
+              && (sectionIndex <= changedSection + 1 || previousHashes.dependsOnBelow()[sectionIndex]);
+
+          String message = minecraftVersion + " changed " + changedSection + " section " + sectionIndex;
+          if (recomputed) {
+            assertTrue(edit.getValue() != MARKER, message);
+          } else {
+            assertEquals(MARKER, edit.getValue(), message);
+            assertTrue(previousEdits.containsKey(edit.getKey()), message);
+          }
+        }
+
+        for (int sectionIndex = 0; sectionIndex < previousHashes.hashes().length; sectionIndex++) {
+          if (previousHashes.canReuse(sectionIndex, fresh.sectionHashes().hashes())) {
+            reusedSections++;
+          } else if (sectionIndex > changedSection + 1) {
+            dependsOnBelowSections++;
+          }
+        }
+
+        // same result as obfuscating from scratch, except for the randomly picked block states
+        assertEquals(edits(fresh).keySet(), edits(partial).keySet());
+        assertEquals(new HashSet<>(fresh.proximityBlocks()), new HashSet<>(partial.proximityBlocks()));
+        assertEquals(fresh.blockEntities(), partial.blockEntities());
+        assertArrayEquals(fresh.sectionHashes().hashes(), partial.sectionHashes().hashes());
+        assertArrayEquals(fresh.sectionHashes().dependsOnBelow(), partial.sectionHashes().dependsOnBelow());
+
+        // and the output has to contain exactly those edits on top of the changed packet
+        try (Chunk expected = world.chunkFactory().fromPacket(modifiedRequest);
+            Chunk actual = world.chunkFactory().fromPacket(world.withData(request, partial.data()))) {
+          Map<Integer, Integer> edits = edits(partial);
+          for (int sectionIndex = 0; sectionIndex < expected.getSectionCount(); sectionIndex++) {
+            int[] expectedData = expected.getSectionData(sectionIndex);
+            if (expectedData == null) {
+              continue;
+            }
+
+            int[] actualData = actual.getSectionData(sectionIndex);
+            for (int index = 0; index < 4096; index++) {
+              int blockState = edits.getOrDefault(sectionIndex << 12 | index, expectedData[index]);
+              assertEquals(blockState, actualData[index], minecraftVersion + " section " + sectionIndex);
+            }
+          }
+        }
+      }
+    }
+
+    assertTrue(reusedSections > 0);
+    assertTrue(dependsOnBelowSections > 0);
+  }
+}
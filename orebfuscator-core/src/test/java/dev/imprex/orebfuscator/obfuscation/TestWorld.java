@@ -0,0 +1,523 @@
+package dev.imprex.orebfuscator.obfuscation;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.random.RandomGenerator;
+import org.jspecify.annotations.Nullable;
+import org.joml.Matrix4f;
+import dev.imprex.orebfuscator.chunk.ByteBufUtil;
+import dev.imprex.orebfuscator.chunk.ChunkFactory;
+import dev.imprex.orebfuscator.chunk.ChunkSection;
+import dev.imprex.orebfuscator.chunk.ChunkVersionFlags;
+import dev.imprex.orebfuscator.config.api.BlockFlags;
+import dev.imprex.orebfuscator.config.api.CacheConfig;
+import dev.imprex.orebfuscator.config.api.Config;
+import dev.imprex.orebfuscator.config.api.ObfuscationConfig;
+import dev.imprex.orebfuscator.config.api.ProximityConfig;
+import dev.imprex.orebfuscator.config.api.WorldConfig;
+import dev.imprex.orebfuscator.config.api.WorldConfigBundle;
+import dev.imprex.orebfuscator.config.components.ConfigBlockValue;
+import dev.imprex.orebfuscator.interop.ChunkAccessor;
+import dev.imprex.orebfuscator.interop.ChunkPacketAccessor;
+import dev.imprex.orebfuscator.interop.OrebfuscatorCore;
+import dev.imprex.orebfuscator.interop.PlayerAccessor;
+import dev.imprex.orebfuscator.interop.RegistryAccessor;
+import dev.imprex.orebfuscator.interop.WorldAccessor;
+import dev.imprex.orebfuscator.statistics.OrebfuscatorStatistics;
+import dev.imprex.orebfuscator.statistics.StatisticsRegistry;
+import dev.imprex.orebfuscator.util.BlockPos;
+import dev.imprex.orebfuscator.util.BlockProperties;
+import dev.imprex.orebfuscator.util.BlockTag;
+import dev.imprex.orebfuscator.util.Version;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * World with a deterministic terrain of stone, caves, ore veins and a few chests, so that the obfuscation processor can
+ * run without a server. Chunk packets are encoded in the format of the given minecraft version.
+ */
+public class TestWorld implements WorldAccessor {
+
+  public static final int AIR = 0;
+  public static final int STONE = 1;
+  public static final int ANDESITE = 2;
+  public static final int GRANITE = 3;
+  public static final int LAVA = 4;
+  public static final int CHEST = 5;
+  public static final int COAL_ORE = 6;
+  public static final int IRON_ORE = 7;
+  public static final int DIAMOND_ORE = 8;
+
+  /**
+   * Block state that neither the terrain nor the obfuscation ever uses
+   */
+  public static final int UNUSED = 100;
+
+  private static final int SECTION_COUNT = 8;
+  private static final int SURFACE = 100;
+
+  private static final int[] RANDOM_BLOCK_STATES = { STONE, ANDESITE, GRANITE, COAL_ORE, IRON_ORE, DIAMOND_ORE };
+
+  private static long mix(long value) {
+    value *= 0xff51afd7ed558ccdL;
+    return value ^ (value >>> 33);
+  }
+
+  private static int hash(int x, int y, int z, int salt) {
+    long value = mix(salt * 0x9E3779B97F4A7C15L ^ x);
+    value = mix(value ^ y);
+    value = mix(value ^ z);
+    return (int) value & Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the block state at the given position, the same position always results in the same block state.
+   */
+  public static int blockAt(int x, int y, int z) {
+    if (y < 0 || y > SURFACE) {
+      return AIR;
+    } else if (y == 0) {
+      return STONE;
+    }
+
+    if (hash(x >> 2, y >> 2, z >> 2, 1) % 100 < 15) {
+      if (y < 8) {
+        return LAVA;
+      }
+      return hash(x, y, z, 2) % 256 == 0 ? CHEST : AIR;
+    }
+
+    int vein = hash(x >> 1, y >> 1, z >> 1, 3);
+    if (vein % 100 < 4) {
+      return COAL_ORE + (vein >> 8) % 3;
+    }
+
+    return STONE + hash(x >> 3, y >> 3, z >> 3, 4) % 3;
+  }
+
+  private final OrebfuscatorStatistics statistics;
+  private final ChunkFactory chunkFactory;
+  private final ChunkVersionFlags versionFlags;
+  private final ObfuscationProcessor processor;
+  private final WorldConfigBundle config = new TestWorldConfigBundle();
+
+  public TestWorld(String minecraftVersion) {
+    Config config = mock(Config.class);
+    when(config.cache()).thenReturn(mock(CacheConfig.class));
+    this.statistics = new OrebfuscatorStatistics(config, new StatisticsRegistry());
+
+    // the registry gets queried for almost every block, so it is implemented instead of mocked
+    OrebfuscatorCore orebfuscator = mock(OrebfuscatorCore.class);
+    when(orebfuscator.registry()).thenReturn(new TestRegistry());
+    when(orebfuscator.minecraftVersion()).thenReturn(Version.parse(minecraftVersion));
+    when(orebfuscator.statistics()).thenReturn(this.statistics);
+
+    this.chunkFactory = new ChunkFactory(orebfuscator);
+    this.versionFlags = new ChunkVersionFlags(orebfuscator);
+    when(orebfuscator.chunkFactory()).thenReturn(this.chunkFactory);
+    this.processor = new ObfuscationProcessor(orebfuscator);
+  }
+
+  @Override
+  public String name() {
+    return "world";
+  }
+
+  @Override
+  public int height() {
+    return SECTION_COUNT << 4;
+  }
+
+  @Override
+  public int minBuildHeight() {
+    return 0;
+  }
+
+  @Override
+  public int maxBuildHeight() {
+    return SECTION_COUNT << 4;
+  }
+
+  @Override
+  public int sectionCount() {
+    return SECTION_COUNT;
+  }
+
+  @Override
+  public int minSection() {
+    return 0;
+  }
+
+  @Override
+  public int maxSection() {
+    return SECTION_COUNT;
+  }
+
+  @Override
+  public int sectionIndex(int y) {
+    return y >> 4;
+  }
+
+  @Override
+  public WorldConfigBundle config() {
+    return this.config;
+  }
+
+  @Override
+  public CompletableFuture<ChunkAccessor[]> getNeighboringChunks(ObfuscationRequest request) {
+    ChunkAccessor[] neighbors = new ChunkAccessor[4];
+    Arrays.fill(neighbors, this.getChunkNow(0, 0));
+    return CompletableFuture.completedFuture(neighbors);
+  }
+
+  @Override
+  public ChunkAccessor getChunkNow(int chunkX, int chunkZ) {
+    return TestWorld::blockAt;
+  }
+
+  @Override
+  public void sendBlockUpdates(Iterable<BlockPos> iterable) {
+  }
+
+  public OrebfuscatorStatistics statistics() {
+    return this.statistics;
+  }
+
+  public ChunkFactory chunkFactory() {
+    return this.chunkFactory;
+  }
+
+  public ObfuscationProcessor processor() {
+    return this.processor;
+  }
+
+  /**
+   * Returns requests for all chunks within the given radius around the origin.
+   */
+  public List<ObfuscationRequest> requests(int radius) {
+    List<ObfuscationRequest> requests = new ArrayList<>();
+    for (int chunkX = -radius; chunkX < radius; chunkX++) {
+      for (int chunkZ = -radius; chunkZ < radius; chunkZ++) {
+        requests.add(this.request(this.createPacket(chunkX, chunkZ)));
+      }
+    }
+    return requests;
+  }
+
+  /**
+   * Returns the given request with its packet data replaced by the given data.
+   */
+  public ObfuscationRequest withData(ObfuscationRequest request, byte[] data) {
+    var packet = (TestChunkPacket) request.packet();
+    return this.request(new TestChunkPacket(packet.chunkX(), packet.chunkZ(), packet.sectionMask(), data));
+  }
+
+  private ObfuscationRequest request(TestChunkPacket packet) {
+    var request = new ObfuscationRequest(this, mock(PlayerAccessor.class), packet, null);
+    return request.withNeighbors(this.getNeighboringChunks(request).join());
+  }
+
+  private TestChunkPacket createPacket(int chunkX, int chunkZ) {
+    BitSet sectionMask = new BitSet();
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      for (int sectionIndex = 0; sectionIndex < SECTION_COUNT; sectionIndex++) {
+        ChunkSection section = this.createEmptySection();
+        for (int index = 0; index < 4096; index++) {
+          int x = (chunkX << 4) + (index & 15);
+          int y = (sectionIndex << 4) + (index >> 8 & 15);
+          int z = (chunkZ << 4) + (index >> 4 & 15);
+          section.setBlockState(index, blockAt(x, y, z));
+        }
+
+        // chunks before 1.18 only contain non-empty sections
+        if (!this.versionFlags.hasBiomePalettedContainer() && section.isEmpty()) {
+          continue;
+        }
+
+        sectionMask.set(sectionIndex);
+        section.write(buffer);
+
+        if (this.versionFlags.hasBiomePalettedContainer()) {
+          // single value biome container
+          buffer.writeByte(0);
+          ByteBufUtil.writeVarInt(buffer, 0);
+          if (this.versionFlags.hasLongArrayLengthField()) {
+            ByteBufUtil.writeVarInt(buffer, 0);
+          }
+        }
+      }
+
+      byte[] data = new byte[buffer.readableBytes()];
+      buffer.readBytes(data);
+      return new TestChunkPacket(chunkX, chunkZ, sectionMask, data);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  /**
+   * Sections created from scratch have an empty palette before 1.18, so we instead read an air-only section.
+   */
+  private ChunkSection createEmptySection() {
+    ByteBuf buffer = Unpooled.buffer();
+    try {
+      buffer.writeShort(0);
+      if (this.versionFlags.hasFluidCount()) {
+        buffer.writeShort(0);
+      }
+
+      int dataLength = 0;
+      if (this.versionFlags.hasSingleValuePalette()) {
+        buffer.writeByte(0);
+        ByteBufUtil.writeVarInt(buffer, AIR);
+      } else {
+        buffer.writeByte(4);
+        ByteBufUtil.writeVarInt(buffer, 1);
+        ByteBufUtil.writeVarInt(buffer, AIR);
+        dataLength = 4096 * 4 / Long.SIZE;
+      }
+
+      if (this.versionFlags.hasLongArrayLengthField()) {
+        ByteBufUtil.writeVarInt(buffer, dataLength);
+      }
+      buffer.writeZero(dataLength * Long.BYTES);
+
+      ChunkSection section = new ChunkSection(this.chunkFactory);
+      section.read(buffer);
+      return section;
+    } finally {
+      buffer.release();
+    }
+  }
+
+  public record TestChunkPacket(int chunkX, int chunkZ, BitSet sectionMask, byte[] data)
+      implements ChunkPacketAccessor {
+
+    @Override
+    public boolean isSectionPresent(int index) {
+      return this.sectionMask.get(index);
+    }
+
+    @Override
+    public void update(ObfuscationResponse response) {
+    }
+  }
+
+  private static class TestRegistry implements RegistryAccessor {
+
+    @Override
+    public int getUniqueBlockStateCount() {
+      return UNUSED + 1;
+    }
+
+    @Override
+    public int getMaxBitsPerBlockState() {
+      return 32 - Integer.numberOfLeadingZeros(UNUSED);
+    }
+
+    @Override
+    public boolean isAir(int blockId) {
+      return blockId == AIR;
+    }
+
+    @Override
+    public boolean isFluid(int blockId) {
+      return blockId == LAVA;
+    }
+
+    @Override
+    public boolean isLava(int blockId) {
+      return blockId == LAVA;
+    }
+
+    @Override
+    public boolean isOccluding(int blockId) {
+      return blockId != AIR && blockId != LAVA && blockId != CHEST;
+    }
+
+    @Override
+    public boolean isBlockEntity(int blockId) {
+      return blockId == CHEST;
+    }
+
+    @Override
+    public @Nullable BlockProperties getBlockByName(String name) {
+      return null;
+    }
+
+    @Override
+    public @Nullable BlockTag getBlockTagByName(String name) {
+      return null;
+    }
+  }
+
+  private static class TestWorldConfigBundle implements WorldConfigBundle {
+
+    private final int[] flags = new int[UNUSED + 1];
+
+    private final BlockFlags blockFlags = new BlockFlags() {
+
+      @Override
+      public int flags(int blockState) {
+        return flags[blockState];
+      }
+
+      @Override
+      public int flags(int blockState, int y) {
+        return flags[blockState];
+      }
+    };
+
+    private final ObfuscationConfig obfuscationConfig = new TestObfuscationConfig();
+    private final ProximityConfig proximityConfig = new TestProximityConfig();
+
+    public TestWorldConfigBundle() {
+      this.flags[COAL_ORE] = BlockFlags.FLAG_OBFUSCATE;
+      this.flags[IRON_ORE] = BlockFlags.FLAG_OBFUSCATE;
+      this.flags[DIAMOND_ORE] = BlockFlags.FLAG_OBFUSCATE | BlockFlags.FLAG_PROXIMITY | BlockFlags.FLAG_USE_BLOCK_BELOW;
+      this.flags[CHEST] = BlockFlags.FLAG_OBFUSCATE | BlockFlags.FLAG_BLOCK_ENTITY | BlockFlags.FLAG_PROXIMITY;
+    }
+
+    @Override
+    public BlockFlags blockFlags() {
+      return this.blockFlags;
+    }
+
+    @Override
+    public ObfuscationConfig obfuscation() {
+      return this.obfuscationConfig;
+    }
+
+    @Override
+    public ProximityConfig proximity() {
+      return this.proximityConfig;
+    }
+
+    @Override
+    public boolean needsObfuscation() {
+      return true;
+    }
+
+    @Override
+    public int minSectionIndex() {
+      return 0;
+    }
+
+    @Override
+    public int maxSectionIndex() {
+      return SECTION_COUNT;
+    }
+
+    @Override
+    public boolean shouldObfuscate(int y) {
+      return true;
+    }
+
+    @Override
+    public int nextRandomObfuscationBlock(RandomGenerator random, int y) {
+      return RANDOM_BLOCK_STATES[random.nextInt(RANDOM_BLOCK_STATES.length)];
+    }
+
+    @Override
+    public int nextRandomProximityBlock(RandomGenerator random, int y) {
+      return STONE;
+    }
+
+    @Override
+    public int[] randomBlockStates(int sectionIndex) {
+      return RANDOM_BLOCK_STATES;
+    }
+  }
+
+  private abstract static class TestWorldConfig implements WorldConfig {
+
+    @Override
+    public boolean isEnabled() {
+      return true;
+    }
+
+    @Override
+    public int getMinY() {
+      return 0;
+    }
+
+    @Override
+    public int getMaxY() {
+      return SECTION_COUNT << 4;
+    }
+
+    @Override
+    public boolean matchesWorldName(String worldName) {
+      return true;
+    }
+
+    @Override
+    public boolean shouldObfuscate(int y) {
+      return true;
+    }
+  }
+
+  private static class TestObfuscationConfig extends TestWorldConfig implements ObfuscationConfig {
+
+    @Override
+    public boolean layerObfuscation() {
+      return false;
+    }
+
+    @Override
+    public boolean preferPaletteBlocks() {
+      return false;
+    }
+
+    @Override
+    public List<ConfigBlockValue> hiddenBlocks() {
+      return List.of();
+    }
+  }
+
+  private static class TestProximityConfig extends TestWorldConfig implements ProximityConfig {
+
+    @Override
+    public int distance() {
+      return 24;
+    }
+
+    @Override
+    public boolean frustumCullingEnabled() {
+      return false;
+    }
+
+    @Override
+    public float frustumCullingMinDistanceSquared() {
+      return 0;
+    }
+
+    @Override
+    public Matrix4f frustumCullingProjectionMatrix() {
+      return new Matrix4f();
+    }
+
+    @Override
+    public boolean rayCastCheckEnabled() {
+      return false;
+    }
+
+    @Override
+    public boolean rayCastCheckOnlyCheckCenter() {
+      return false;
+    }
+
+    @Override
+    public List<Map.Entry<ConfigBlockValue, Integer>> hiddenBlocks() {
+      return List.of();
+    }
+  }
+}
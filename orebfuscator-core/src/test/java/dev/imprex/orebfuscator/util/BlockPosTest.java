@@ -37,6 +37,9 @@ public class BlockPosTest {
     int sectionPosB = positionB.toSectionPos();
     int sectionPosC = positionC.toSectionPos();
 
+    assertEquals(sectionPosA, BlockPos.toSectionPos(chunkX + 8, BlockPos.MAX_Y, chunkZ));
+    assertEquals(sectionPosB, BlockPos.toSectionPos(chunkX, BlockPos.MIN_Y, chunkZ + 15));
+
     assertEquals(positionA, BlockPos.fromSectionPos(chunkX, chunkZ, sectionPosA));
     assertEquals(positionB, BlockPos.fromSectionPos(chunkX, chunkZ, sectionPosB));
     assertEquals(positionC, BlockPos.fromSectionPos(chunkX, chunkZ, sectionPosC));